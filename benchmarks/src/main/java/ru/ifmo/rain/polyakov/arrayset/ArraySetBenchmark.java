@@ -0,0 +1,118 @@
+package ru.ifmo.rain.polyakov.arrayset;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link ArraySet} lookups and views. Elements are even numbers,
+ * so half of the probes are present in the set and half are not.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArraySetBenchmark {
+    private static final int PROBES = 1024;
+
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    private ArraySet<Integer> set;
+    private Integer[] probes;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Integer> elements = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            elements.add(2 * i);
+        }
+        set = new ArraySet<>(elements);
+        Random random = new Random(2019);
+        probes = new Integer[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            probes[i] = random.nextInt(2 * size);
+        }
+    }
+
+    private Integer probe() {
+        index = (index + 1) & (PROBES - 1);
+        return probes[index];
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return set.contains(probe());
+    }
+
+    @Benchmark
+    public Integer floor() {
+        return set.floor(probe());
+    }
+
+    @Benchmark
+    public Integer ceiling() {
+        return set.ceiling(probe());
+    }
+
+    @Benchmark
+    public Integer lower() {
+        return set.lower(probe());
+    }
+
+    @Benchmark
+    public Integer higher() {
+        return set.higher(probe());
+    }
+
+    @Benchmark
+    public int subSet() {
+        Integer from = probe();
+        Integer to = probe();
+        return from <= to ? set.subSet(from, true, to, false).size() : set.subSet(to, true, from, false).size();
+    }
+
+    @Benchmark
+    public Integer headSet() {
+        NavigableSet<Integer> head = set.headSet(probe(), true);
+        return head.isEmpty() ? null : head.last();
+    }
+
+    @Benchmark
+    public Integer tailSet() {
+        NavigableSet<Integer> tail = set.tailSet(probe(), true);
+        return tail.isEmpty() ? null : tail.first();
+    }
+
+    @Benchmark
+    public Integer descendingSetFloor() {
+        return set.descendingSet().floor(probe());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void descendingSetIteration(Blackhole blackhole) {
+        for (Integer element : set.descendingSet()) {
+            blackhole.consume(element);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package ru.ifmo.rain.polyakov.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the usual JMH command line,
+ * writing the results to <tt>jmh-result.json</tt> unless another result file or format is given.
+ */
+public class Main {
+    private static final String RESULT = "jmh-result.json";
+
+    public static void main(String[] args) {
+        CommandLineOptions options;
+        try {
+            options = new CommandLineOptions(args);
+        } catch (CommandLineOptionException e) {
+            System.err.println("Error parsing command line: " + e.getMessage());
+            return;
+        }
+        if (options.shouldHelp() || options.shouldList() || options.shouldListWithParams()
+                || options.shouldListProfilers() || options.shouldListResultFormats()) {
+            try {
+                org.openjdk.jmh.Main.main(args);
+            } catch (Exception e) {
+                System.err.println("Error: " + e.getMessage());
+            }
+            return;
+        }
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+        if (!options.getResult().hasValue() && !options.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON).result(RESULT);
+        }
+        try {
+            new Runner(builder.build()).run();
+        } catch (RunnerException e) {
+            System.err.println("Error running benchmarks: " + e.getMessage());
+        }
+    }
+}
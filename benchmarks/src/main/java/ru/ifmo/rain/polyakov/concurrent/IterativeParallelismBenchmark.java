@@ -0,0 +1,183 @@
+package ru.ifmo.rain.polyakov.concurrent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Benchmark of {@link IterativeParallelism} operations for every number of threads and execution strategy.
+ * The same values are reduced and mapped both as a boxed {@link List} and as {@code int[]}, {@code long[]}
+ * and {@code double[]} arrays, and {@link #map} is measured with both a CPU-bound and a blocking function.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IterativeParallelismBenchmark {
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"threadPerChunk", "platformPool", "forkJoin"})
+    public String strategy;
+
+    @Param({"1000000"})
+    public int size;
+
+    private ExecutionStrategy executionStrategy;
+    private IterativeParallelism parallelism;
+    private List<Integer> values;
+    private int[] ints;
+    private long[] longs;
+    private double[] doubles;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (strategy) {
+            case "platformPool":
+                executionStrategy = ExecutionStrategy.platformPool(threads);
+                break;
+            case "forkJoin":
+                executionStrategy = ExecutionStrategy.forkJoin();
+                break;
+            default:
+                executionStrategy = ExecutionStrategy.threadPerChunk();
+        }
+        parallelism = new IterativeParallelism(executionStrategy);
+        Random random = new Random(2019);
+        values = new ArrayList<>(size);
+        ints = new int[size];
+        longs = new long[size];
+        doubles = new double[size];
+        for (int i = 0; i < size; i++) {
+            int value = random.nextInt();
+            values.add(value);
+            ints[i] = value;
+            longs[i] = value;
+            doubles[i] = value;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executionStrategy.close();
+    }
+
+    @Benchmark
+    public Integer maximum() throws InterruptedException {
+        return parallelism.maximum(threads, values, Comparator.naturalOrder());
+    }
+
+    @Benchmark
+    public boolean all() throws InterruptedException {
+        return parallelism.all(threads, values, value -> value != 0);
+    }
+
+    @Benchmark
+    public List<Integer> filter() throws InterruptedException {
+        return parallelism.filter(threads, values, value -> (value & 1) == 0);
+    }
+
+    @Benchmark
+    public List<Integer> map(MapFunction function) throws InterruptedException {
+        return parallelism.map(threads, values, function.function);
+    }
+
+    @Benchmark
+    public String join() throws InterruptedException {
+        return parallelism.join(threads, values);
+    }
+
+    @Benchmark
+    public long sumInts() throws InterruptedException {
+        return parallelism.sum(threads, ints);
+    }
+
+    @Benchmark
+    public int maximumInts() throws InterruptedException {
+        return parallelism.maximum(threads, ints);
+    }
+
+    @Benchmark
+    public int[] mapInts() throws InterruptedException {
+        return parallelism.map(threads, ints, value -> value >>> 1);
+    }
+
+    @Benchmark
+    public long sumLongs() throws InterruptedException {
+        return parallelism.sum(threads, longs);
+    }
+
+    @Benchmark
+    public long maximumLongs() throws InterruptedException {
+        return parallelism.maximum(threads, longs);
+    }
+
+    @Benchmark
+    public long[] mapLongs() throws InterruptedException {
+        return parallelism.map(threads, longs, value -> value >>> 1);
+    }
+
+    @Benchmark
+    public double sumDoubles() throws InterruptedException {
+        return parallelism.sum(threads, doubles);
+    }
+
+    @Benchmark
+    public double maximumDoubles() throws InterruptedException {
+        return parallelism.maximum(threads, doubles);
+    }
+
+    @Benchmark
+    public double[] mapDoubles() throws InterruptedException {
+        return parallelism.map(threads, doubles, value -> value / 2);
+    }
+
+    /**
+     * Function of {@link #map}: either CPU-bound, or parking for {@link #BLOCKING_NANOS}
+     * on about one value of {@code BLOCKING_MASK + 1}, like a cache miss going to I/O.
+     */
+    @State(Scope.Benchmark)
+    public static class MapFunction {
+        private static final int BLOCKING_MASK = (1 << 10) - 1;
+        private static final long BLOCKING_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+        @Param({"cpu", "blocking"})
+        public String kind;
+
+        private Function<Integer, Integer> function;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            if ("blocking".equals(kind)) {
+                function = value -> {
+                    if ((value & BLOCKING_MASK) == 0) {
+                        LockSupport.parkNanos(BLOCKING_NANOS);
+                    }
+                    return value >>> 1;
+                };
+            } else {
+                function = value -> value >>> 1;
+            }
+        }
+    }
+}
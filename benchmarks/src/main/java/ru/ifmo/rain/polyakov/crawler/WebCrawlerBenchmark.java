@@ -0,0 +1,90 @@
+package ru.ifmo.rain.polyakov.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.ReplayDownloader;
+import info.kgeorgiy.java.advanced.crawler.Result;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link WebCrawler} on the recorded sites of {@link ReplayDownloader} with the minimal delays
+ * of one millisecond per download and extraction, so mostly the crawler's own scheduling and link extraction
+ * are measured. Every crawl gets a fresh downloader and crawler, created outside of the measured time,
+ * and fails the benchmark unless it downloaded the expected pages.
+ * See {@link CrawlerBenchmark} for the crawl times with download delays.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WebCrawlerBenchmark {
+    private static final String URL = "http://www.kgeorgiy.info";
+    private static final int THREADS = 16;
+    /**
+     * Smallest delay accepted by {@link ReplayDownloader}, which sleeps for a random time up to the delay
+     */
+    private static final int DELAY = 1;
+
+    @Param({"3"})
+    public int depth;
+
+    @Param({"1", "4", "16"})
+    public int perHost;
+
+    @Param({"eager", "levels"})
+    public String mode;
+
+    private Result expected;
+    private WebCrawler crawler;
+    private Result result;
+
+    @Setup(Level.Invocation)
+    public void setUp() throws IOException {
+        ReplayDownloader downloader = new ReplayDownloader(URL, depth, DELAY, DELAY);
+        expected = downloader.expected(depth);
+        crawler = new WebCrawler(downloader, THREADS, THREADS, perHost);
+        result = null;
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        crawler.close();
+        if (result == null) {
+            return;
+        }
+        if (result.getDownloaded().isEmpty()) {
+            throw new IllegalStateException("Nothing downloaded from " + URL);
+        }
+        if (!result.getErrors().keySet().equals(expected.getErrors().keySet())) {
+            throw new IllegalStateException("Unexpected errors: " + result.getErrors());
+        }
+        if (!Set.copyOf(result.getDownloaded()).equals(Set.copyOf(expected.getDownloaded()))) {
+            throw new IllegalStateException("Downloaded " + result.getDownloaded().size()
+                    + " pages instead of " + expected.getDownloaded().size());
+        }
+    }
+
+    @Benchmark
+    public Result download() {
+        result = "levels".equals(mode)
+                ? crawler.downloadByLevels(URL, depth, Integer.MAX_VALUE)
+                : crawler.download(URL, depth);
+        return result;
+    }
+}
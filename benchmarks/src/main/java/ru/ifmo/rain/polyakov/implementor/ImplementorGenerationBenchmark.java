@@ -0,0 +1,82 @@
+package ru.ifmo.rain.polyakov.implementor;
+
+import info.kgeorgiy.java.advanced.implementor.ImplerException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark of {@link Implementor} on single classes of the tester jar:
+ * an interface without methods, a large standard interface and two standard abstract classes. Source generation is measured alone and as a part of jar generation,
+ * which either compiles the source or, in bytecode mode, generates the class directly.
+ * See {@link ImplementorBenchmark} for jar generation of whole tester packages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImplementorGenerationBenchmark {
+    @Param({
+            "info.kgeorgiy.java.advanced.implementor.full.interfaces.InterfaceWithoutMethods",
+            "info.kgeorgiy.java.advanced.implementor.full.interfaces.standard.CachedRowSet",
+            "info.kgeorgiy.java.advanced.implementor.full.classes.standard.RMIIIOPServerImpl",
+            "info.kgeorgiy.java.advanced.implementor.full.classes.standard.BMPImageWriteParam"
+    })
+    public String className;
+
+    private Class<?> token;
+    private Path directory;
+    private Path jar;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ClassNotFoundException, IOException {
+        token = Class.forName(className);
+        directory = Files.createTempDirectory("implementor-benchmark");
+        jar = directory.resolve("impl.jar");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void implement() throws ImplerException {
+        new Implementor().implement(token, directory);
+    }
+
+    @Benchmark
+    public void implementJar(JarMode mode) throws ImplerException {
+        new Implementor(mode.bytecode).implementJar(token, jar);
+    }
+
+    /**
+     * Jar generation mode, so that source generation is not measured twice
+     */
+    @State(Scope.Benchmark)
+    public static class JarMode {
+        @Param({"false", "true"})
+        public boolean bytecode;
+    }
+}
@@ -0,0 +1,107 @@
+package ru.ifmo.rain.polyakov.student;
+
+import info.kgeorgiy.java.advanced.student.Group;
+import info.kgeorgiy.java.advanced.student.Student;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link StudentDB} queries on random students
+ * with names and groups drawn from small pools, so groups and name matches are large.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StudentDBBenchmark {
+    private static final String[] FIRST_NAMES = {"Ivan", "Petr", "Anna", "Maria", "Georgiy", "Olga", "Sergey", "Elena"};
+    private static final String[] LAST_NAMES = {"Ivanov", "Petrov", "Sidorov", "Kornilov", "Smirnov", "Popov"};
+    private static final String[] GROUPS = {"M3234", "M3235", "M3236", "M3237", "M3238", "M3239"};
+
+    @Param({"10000"})
+    public int size;
+
+    private final StudentDB db = new StudentDB();
+    private List<Student> students;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(2019);
+        students = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            students.add(new Student(random.nextInt(size),
+                    FIRST_NAMES[random.nextInt(FIRST_NAMES.length)],
+                    LAST_NAMES[random.nextInt(LAST_NAMES.length)],
+                    GROUPS[random.nextInt(GROUPS.length)]));
+        }
+    }
+
+    @Benchmark
+    public List<String> getFullNames() {
+        return db.getFullNames(students);
+    }
+
+    @Benchmark
+    public Set<String> getDistinctFirstNames() {
+        return db.getDistinctFirstNames(students);
+    }
+
+    @Benchmark
+    public String getMinStudentFirstName() {
+        return db.getMinStudentFirstName(students);
+    }
+
+    @Benchmark
+    public List<Student> sortStudentsByName() {
+        return db.sortStudentsByName(students);
+    }
+
+    @Benchmark
+    public List<Student> findStudentsByLastName() {
+        return db.findStudentsByLastName(students, LAST_NAMES[0]);
+    }
+
+    @Benchmark
+    public Map<String, String> findStudentNamesByGroup() {
+        return db.findStudentNamesByGroup(students, GROUPS[0]);
+    }
+
+    @Benchmark
+    public List<Group> getGroupsByName() {
+        return db.getGroupsByName(students);
+    }
+
+    @Benchmark
+    public List<Group> getGroupsById() {
+        return db.getGroupsById(students);
+    }
+
+    @Benchmark
+    public String getLargestGroup() {
+        return db.getLargestGroup(students);
+    }
+
+    @Benchmark
+    public String getLargestGroupFirstName() {
+        return db.getLargestGroupFirstName(students);
+    }
+}
@@ -0,0 +1,118 @@
+package ru.ifmo.rain.polyakov.walk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark of {@link RecursiveWalk}: checksum of a single file of the given size
+ * and the whole walk of a directory tree of small files.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WalkBenchmark {
+    private static final int DIRECTORIES = 16;
+    private static final int FILES_PER_DIRECTORY = 64;
+    private static final int TREE_FILE_SIZE = 1024;
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int checksum(FileState state) {
+        return RecursiveWalk.calculateChecksum(state.file);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void walk(TreeState state) {
+        RecursiveWalk.main(new String[]{state.input.toString(), state.output.toString()});
+    }
+
+    /**
+     * Single file of random bytes
+     */
+    @State(Scope.Benchmark)
+    public static class FileState {
+        @Param({"4096", "1048576"})
+        public int fileSize;
+
+        private Path directory;
+        private Path file;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("walk-benchmark");
+            file = directory.resolve("file");
+            Files.write(file, randomBytes(new Random(2019), fileSize));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            delete(directory);
+        }
+    }
+
+    /**
+     * Tree of {@value DIRECTORIES} directories with {@value FILES_PER_DIRECTORY} files each,
+     * listed in the input file of the walk
+     */
+    @State(Scope.Benchmark)
+    public static class TreeState {
+        private Path directory;
+        private Path input;
+        private Path output;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            Random random = new Random(2019);
+            directory = Files.createTempDirectory("walk-benchmark");
+            Path tree = directory.resolve("tree");
+            for (int i = 0; i < DIRECTORIES; i++) {
+                Path subdirectory = Files.createDirectories(tree.resolve("d" + i));
+                for (int j = 0; j < FILES_PER_DIRECTORY; j++) {
+                    Files.write(subdirectory.resolve("f" + j), randomBytes(random, TREE_FILE_SIZE));
+                }
+            }
+            input = directory.resolve("input.txt");
+            Files.write(input, (tree + "\n").getBytes(StandardCharsets.UTF_8));
+            output = directory.resolve("output.txt");
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            delete(directory);
+        }
+    }
+
+    private static byte[] randomBytes(Random random, int size) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
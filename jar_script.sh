@@ -1,6 +1,7 @@
 mkdir build
 
-javac -cp ./lib/info.kgeorgiy.java.advanced.implementor.jar -d ./build src/main/java/ru/ifmo/rain/polyakov/implementor/Implementor.java
+javac -cp ./lib/info.kgeorgiy.java.advanced.implementor.jar -d ./build src/main/java/ru/ifmo/rain/polyakov/implementor/Implementor.java \
+        src/main/java/ru/ifmo/rain/polyakov/implementor/ClassFileWriter.java
 
 cd build
 
@@ -0,0 +1,102 @@
+package ru.ifmo.rain.polyakov.concurrent;
+
+import ru.ifmo.rain.polyakov.util.VirtualThreads;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Defines how {@link IterativeParallelism} runs the chunks it splits its input into.
+ * Strategies backed by an owned executor must be closed after use.
+ */
+public interface ExecutionStrategy extends AutoCloseable {
+
+    /**
+     * Runs all tasks and waits for them to complete.
+     *
+     * @param tasks tasks to run.
+     * @throws InterruptedException if waiting thread was interrupted.
+     */
+    void runAll(List<? extends Runnable> tasks) throws InterruptedException;
+
+    @Override
+    default void close() {
+    }
+
+    /**
+     * Starts a new platform {@link Thread} for every chunk.
+     * Like the executor backed strategies, rethrows the failure of the first failed chunk once all chunks end.
+     *
+     * @return thread per chunk strategy.
+     */
+    static ExecutionStrategy threadPerChunk() {
+        return tasks -> {
+            List<Thread> threadList = new ArrayList<>();
+            Throwable[] failures = new Throwable[tasks.size()];
+            for (Runnable task : tasks) {
+                int index = threadList.size();
+                Thread thread = new Thread(task);
+                thread.setUncaughtExceptionHandler((t, e) -> failures[index] = e);
+                thread.start();
+                threadList.add(thread);
+            }
+            for (Thread t : threadList) {
+                t.join();
+            }
+            for (Throwable failure : failures) {
+                if (failure instanceof RuntimeException) {
+                    throw (RuntimeException) failure;
+                }
+                if (failure instanceof Error) {
+                    throw (Error) failure;
+                }
+                if (failure != null) {
+                    throw new IllegalStateException(failure);
+                }
+            }
+        };
+    }
+
+    /**
+     * Runs chunks on a fixed pool of platform threads owned by the strategy.
+     *
+     * @param threads number of pool threads.
+     * @return platform pool strategy.
+     */
+    static ExecutionStrategy platformPool(int threads) {
+        return new ExecutorServiceStrategy(Executors.newFixedThreadPool(threads), true);
+    }
+
+    /**
+     * Runs chunks on the common {@link ForkJoinPool}.
+     *
+     * @return fork join strategy.
+     */
+    static ExecutionStrategy forkJoin() {
+        return new ExecutorServiceStrategy(ForkJoinPool.commonPool(), false);
+    }
+
+    /**
+     * Starts a new virtual thread for every chunk.
+     * Virtual threads are only available on JDK 21+.
+     *
+     * @return virtual thread per chunk strategy.
+     * @throws UnsupportedOperationException if running JDK does not support virtual threads.
+     */
+    static ExecutionStrategy virtualThreadPerChunk() {
+        return new ExecutorServiceStrategy(VirtualThreads.newVirtualThreadPerTaskExecutor(), true);
+    }
+
+    /**
+     * Runs chunks on the given executor. The executor is not shut down on {@link #close()}.
+     *
+     * @param executor executor to run chunks on.
+     * @return executor based strategy.
+     */
+    static ExecutionStrategy of(ExecutorService executor) {
+        return new ExecutorServiceStrategy(executor, false);
+    }
+}
@@ -0,0 +1,48 @@
+package ru.ifmo.rain.polyakov.concurrent;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * {@link ExecutionStrategy} submitting every chunk to an {@link ExecutorService}.
+ */
+class ExecutorServiceStrategy implements ExecutionStrategy {
+    private final ExecutorService executor;
+    private final boolean owned;
+
+    ExecutorServiceStrategy(ExecutorService executor, boolean owned) {
+        this.executor = executor;
+        this.owned = owned;
+    }
+
+    @Override
+    public void runAll(List<? extends Runnable> tasks) throws InterruptedException {
+        List<Callable<Object>> callables = tasks.stream().map(Executors::callable).collect(Collectors.toList());
+        for (Future<Object> future : executor.invokeAll(callables)) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (owned) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -6,12 +6,41 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleUnaryOperator;
 import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
 import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 
 
 public class IterativeParallelism implements ListIP {
+    private final ExecutionStrategy strategy;
+
+    /**
+     * Creates instance starting a new platform thread for every chunk.
+     */
+    public IterativeParallelism() {
+        this(ExecutionStrategy.threadPerChunk());
+    }
+
+    /**
+     * Creates instance running chunks with the given strategy.
+     *
+     * @param strategy chunks execution strategy.
+     */
+    public IterativeParallelism(ExecutionStrategy strategy) {
+        this.strategy = strategy;
+    }
 
     @Override
     public String join(int threads, List<?> values) throws InterruptedException {
@@ -57,48 +86,445 @@ public class IterativeParallelism implements ListIP {
         return !all(threads, values, predicate.negate());
     }
 
-    private <T, R> List<R> splitAndApply(int threads, List<? extends T> args, Function<List<? extends T>, R> func) throws InterruptedException {
-        threads = Math.min(threads, args.size());
-        List<List<? extends T>> parts = split(args, threads);
-
-        List<FunctionRunnable<T, R>> runnableList = parts.stream().map(part -> new FunctionRunnable<>(func, part)).collect(Collectors.toList());
-        List<Thread> threadList = runnableList.stream().map(Thread::new).collect(Collectors.toList());
-        threadList.forEach(Thread::start);
-        for (Thread t : threadList) {
-            t.join();
+    /**
+     * Returns sum of {@code int} values without boxing them.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to sum.
+     * @return sum of values.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public long sum(int threads, int[] values) throws InterruptedException {
+        List<Long> threadsResults = splitRangesAndApply(threads, values.length, (from, to) -> {
+            long sum = 0;
+            for (int i = from; i < to; i++) {
+                sum += values[i];
+            }
+            return sum;
+        });
+        long sum = 0;
+        for (long part : threadsResults) {
+            sum += part;
         }
-        return runnableList.stream().map(FunctionRunnable::getResult).collect(Collectors.toList());
+        return sum;
+    }
+
+    /**
+     * Returns maximum of {@code int} values without boxing them.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get maximum of.
+     * @return maximum of given values.
+     * @throws InterruptedException   if executing thread was interrupted.
+     * @throws NoSuchElementException if no values are given.
+     */
+    public int maximum(int threads, int[] values) throws InterruptedException, NoSuchElementException {
+        return reduce(threads, values, Math::max);
+    }
+
+    /**
+     * Returns minimum of {@code int} values without boxing them.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get minimum of.
+     * @return minimum of given values.
+     * @throws InterruptedException   if executing thread was interrupted.
+     * @throws NoSuchElementException if no values are given.
+     */
+    public int minimum(int threads, int[] values) throws InterruptedException, NoSuchElementException {
+        return reduce(threads, values, Math::min);
+    }
+
+    /**
+     * Returns number of {@code int} values satisfying predicate.
+     *
+     * @param threads   number of concurrent threads.
+     * @param values    values to test.
+     * @param predicate test predicate.
+     * @return number of values satisfying predicate.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public int count(int threads, int[] values, IntPredicate predicate) throws InterruptedException {
+        List<Integer> threadsResults = splitRangesAndApply(threads, values.length, (from, to) -> {
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                if (predicate.test(values[i])) {
+                    count++;
+                }
+            }
+            return count;
+        });
+        return threadsResults.stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * Maps {@code int} values into a new array without boxing them.
+     *
+     * @param threads  number of concurrent threads.
+     * @param values   values to map.
+     * @param function mapper function.
+     * @return array of mapped values.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public int[] map(int threads, int[] values, IntUnaryOperator function) throws InterruptedException {
+        int[] result = new int[values.length];
+        splitRangesAndApply(threads, values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = function.applyAsInt(values[i]);
+            }
+            return null;
+        });
+        return result;
+    }
+
+    /**
+     * Maps values into a new {@code int} array.
+     *
+     * @param threads  number of concurrent threads.
+     * @param values   values to map.
+     * @param function mapper function.
+     * @param <T>      value type.
+     * @return array of mapped values.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public <T> int[] mapToInt(int threads, List<? extends T> values, ToIntFunction<? super T> function) throws InterruptedException {
+        int[] result = new int[values.size()];
+        splitRangesAndApply(threads, values.size(), (from, to) -> {
+            int i = from;
+            for (T value : values.subList(from, to)) {
+                result[i++] = function.applyAsInt(value);
+            }
+            return null;
+        });
+        return result;
+    }
+
+    /**
+     * Returns sum of {@code long} values without boxing them.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to sum.
+     * @return sum of values.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public long sum(int threads, long[] values) throws InterruptedException {
+        List<Long> threadsResults = splitRangesAndApply(threads, values.length, (from, to) -> {
+            long sum = 0;
+            for (int i = from; i < to; i++) {
+                sum += values[i];
+            }
+            return sum;
+        });
+        long sum = 0;
+        for (long part : threadsResults) {
+            sum += part;
+        }
+        return sum;
+    }
+
+    /**
+     * Returns maximum of {@code long} values without boxing them.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get maximum of.
+     * @return maximum of given values.
+     * @throws InterruptedException   if executing thread was interrupted.
+     * @throws NoSuchElementException if no values are given.
+     */
+    public long maximum(int threads, long[] values) throws InterruptedException, NoSuchElementException {
+        return reduce(threads, values, Math::max);
+    }
+
+    /**
+     * Returns minimum of {@code long} values without boxing them.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get minimum of.
+     * @return minimum of given values.
+     * @throws InterruptedException   if executing thread was interrupted.
+     * @throws NoSuchElementException if no values are given.
+     */
+    public long minimum(int threads, long[] values) throws InterruptedException, NoSuchElementException {
+        return reduce(threads, values, Math::min);
+    }
+
+    /**
+     * Returns number of {@code long} values satisfying predicate.
+     *
+     * @param threads   number of concurrent threads.
+     * @param values    values to test.
+     * @param predicate test predicate.
+     * @return number of values satisfying predicate.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public int count(int threads, long[] values, LongPredicate predicate) throws InterruptedException {
+        List<Integer> threadsResults = splitRangesAndApply(threads, values.length, (from, to) -> {
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                if (predicate.test(values[i])) {
+                    count++;
+                }
+            }
+            return count;
+        });
+        return threadsResults.stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * Maps {@code long} values into a new array without boxing them.
+     *
+     * @param threads  number of concurrent threads.
+     * @param values   values to map.
+     * @param function mapper function.
+     * @return array of mapped values.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public long[] map(int threads, long[] values, LongUnaryOperator function) throws InterruptedException {
+        long[] result = new long[values.length];
+        splitRangesAndApply(threads, values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = function.applyAsLong(values[i]);
+            }
+            return null;
+        });
+        return result;
+    }
+
+    /**
+     * Maps values into a new {@code long} array.
+     *
+     * @param threads  number of concurrent threads.
+     * @param values   values to map.
+     * @param function mapper function.
+     * @param <T>      value type.
+     * @return array of mapped values.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public <T> long[] mapToLong(int threads, List<? extends T> values, ToLongFunction<? super T> function) throws InterruptedException {
+        long[] result = new long[values.size()];
+        splitRangesAndApply(threads, values.size(), (from, to) -> {
+            int i = from;
+            for (T value : values.subList(from, to)) {
+                result[i++] = function.applyAsLong(value);
+            }
+            return null;
+        });
+        return result;
+    }
+
+    /**
+     * Returns sum of {@code double} values without boxing them.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to sum.
+     * @return sum of values.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public double sum(int threads, double[] values) throws InterruptedException {
+        List<Double> threadsResults = splitRangesAndApply(threads, values.length, (from, to) -> {
+            double sum = 0;
+            for (int i = from; i < to; i++) {
+                sum += values[i];
+            }
+            return sum;
+        });
+        double sum = 0;
+        for (double part : threadsResults) {
+            sum += part;
+        }
+        return sum;
     }
 
-    private <T> List<List<? extends T>> split(List<? extends T> list, int n) {
-        List<List<? extends T>> parts = new ArrayList<>();
-        int step = list.size() / n;
+    /**
+     * Returns maximum of {@code double} values without boxing them.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get maximum of.
+     * @return maximum of given values.
+     * @throws InterruptedException   if executing thread was interrupted.
+     * @throws NoSuchElementException if no values are given.
+     */
+    public double maximum(int threads, double[] values) throws InterruptedException, NoSuchElementException {
+        return reduce(threads, values, Math::max);
+    }
+
+    /**
+     * Returns minimum of {@code double} values without boxing them.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get minimum of.
+     * @return minimum of given values.
+     * @throws InterruptedException   if executing thread was interrupted.
+     * @throws NoSuchElementException if no values are given.
+     */
+    public double minimum(int threads, double[] values) throws InterruptedException, NoSuchElementException {
+        return reduce(threads, values, Math::min);
+    }
+
+    /**
+     * Returns number of {@code double} values satisfying predicate.
+     *
+     * @param threads   number of concurrent threads.
+     * @param values    values to test.
+     * @param predicate test predicate.
+     * @return number of values satisfying predicate.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public int count(int threads, double[] values, DoublePredicate predicate) throws InterruptedException {
+        List<Integer> threadsResults = splitRangesAndApply(threads, values.length, (from, to) -> {
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                if (predicate.test(values[i])) {
+                    count++;
+                }
+            }
+            return count;
+        });
+        return threadsResults.stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * Maps {@code double} values into a new array without boxing them.
+     *
+     * @param threads  number of concurrent threads.
+     * @param values   values to map.
+     * @param function mapper function.
+     * @return array of mapped values.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public double[] map(int threads, double[] values, DoubleUnaryOperator function) throws InterruptedException {
+        double[] result = new double[values.length];
+        splitRangesAndApply(threads, values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = function.applyAsDouble(values[i]);
+            }
+            return null;
+        });
+        return result;
+    }
+
+    /**
+     * Maps values into a new {@code double} array.
+     *
+     * @param threads  number of concurrent threads.
+     * @param values   values to map.
+     * @param function mapper function.
+     * @param <T>      value type.
+     * @return array of mapped values.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public <T> double[] mapToDouble(int threads, List<? extends T> values, ToDoubleFunction<? super T> function) throws InterruptedException {
+        double[] result = new double[values.size()];
+        splitRangesAndApply(threads, values.size(), (from, to) -> {
+            int i = from;
+            for (T value : values.subList(from, to)) {
+                result[i++] = function.applyAsDouble(value);
+            }
+            return null;
+        });
+        return result;
+    }
+
+    private int reduce(int threads, int[] values, IntBinaryOperator operator) throws InterruptedException {
+        if (values.length == 0) {
+            throw new NoSuchElementException();
+        }
+        List<Integer> threadsResults = splitRangesAndApply(threads, values.length, (from, to) -> {
+            int result = values[from];
+            for (int i = from + 1; i < to; i++) {
+                result = operator.applyAsInt(result, values[i]);
+            }
+            return result;
+        });
+        int result = threadsResults.get(0);
+        for (int part : threadsResults) {
+            result = operator.applyAsInt(result, part);
+        }
+        return result;
+    }
+
+    private long reduce(int threads, long[] values, LongBinaryOperator operator) throws InterruptedException {
+        if (values.length == 0) {
+            throw new NoSuchElementException();
+        }
+        List<Long> threadsResults = splitRangesAndApply(threads, values.length, (from, to) -> {
+            long result = values[from];
+            for (int i = from + 1; i < to; i++) {
+                result = operator.applyAsLong(result, values[i]);
+            }
+            return result;
+        });
+        long result = threadsResults.get(0);
+        for (long part : threadsResults) {
+            result = operator.applyAsLong(result, part);
+        }
+        return result;
+    }
+
+    private double reduce(int threads, double[] values, DoubleBinaryOperator operator) throws InterruptedException {
+        if (values.length == 0) {
+            throw new NoSuchElementException();
+        }
+        List<Double> threadsResults = splitRangesAndApply(threads, values.length, (from, to) -> {
+            double result = values[from];
+            for (int i = from + 1; i < to; i++) {
+                result = operator.applyAsDouble(result, values[i]);
+            }
+            return result;
+        });
+        double result = threadsResults.get(0);
+        for (double part : threadsResults) {
+            result = operator.applyAsDouble(result, part);
+        }
+        return result;
+    }
+
+    private <T, R> List<R> splitAndApply(int threads, List<? extends T> args, Function<List<? extends T>, R> func) throws InterruptedException {
+        return splitRangesAndApply(threads, args.size(), (from, to) -> func.apply(args.subList(from, to)));
+    }
+
+    private <R> List<R> splitRangesAndApply(int threads, int size, RangeFunction<R> func) throws InterruptedException {
+        threads = Math.max(1, Math.min(threads, size));
+
+        List<FunctionRunnable<R>> runnableList = new ArrayList<>();
+        int step = size / threads;
         int to = 0;
-        for (int i = 0; i < n; i += 1) {
+        for (int i = 0; i < threads; i += 1) {
             int from = to;
-            to += step + (i < (list.size() % n) ? 1 : 0);
-            parts.add(list.subList(from, to));
+            to += step + (i < (size % threads) ? 1 : 0);
+            runnableList.add(new FunctionRunnable<>(func, from, to));
         }
-        return parts;
+        strategy.runAll(runnableList);
+        return runnableList.stream().map(FunctionRunnable::getResult).collect(Collectors.toList());
     }
 
     private <T> List<T> toFlat(List<List<T>> listOfList) {
         return listOfList.stream().flatMap(List::stream).collect(Collectors.toList());
     }
 
-    private class FunctionRunnable<X, Y> implements Runnable {
-        private List<? extends X> values;
-        private Function<List<? extends X>, Y> functions;
+    /**
+     * Function applied to the half-open index range {@code [from, to)} of the processed values.
+     */
+    @FunctionalInterface
+    private interface RangeFunction<R> {
+        R apply(int from, int to);
+    }
+
+    private class FunctionRunnable<Y> implements Runnable {
+        private RangeFunction<Y> function;
+        private int from;
+        private int to;
         private Y result;
 
-        public FunctionRunnable(Function<List<? extends X>, Y> functions, List<? extends X> values) {
-            this.functions = functions;
-            this.values = values;
+        public FunctionRunnable(RangeFunction<Y> function, int from, int to) {
+            this.function = function;
+            this.from = from;
+            this.to = to;
         }
 
         @Override
         public void run() {
-            result = functions.apply(values);
+            result = function.apply(from, to);
         }
 
         public Y getResult() {
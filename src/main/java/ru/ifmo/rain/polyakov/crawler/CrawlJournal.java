@@ -0,0 +1,270 @@
+package ru.ifmo.rain.polyakov.crawler;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Durable state of a single crawl, kept in an append-only log on local disk.
+ * Every visited URL is logged as scheduled with its depth before it is queued,
+ * and as finished or failed once its successors have been logged as scheduled,
+ * so on resume the frontier is exactly the scheduled URLs which are neither finished nor failed,
+ * and finished pages are never downloaded again.
+ * <br/><br/>
+ * Records are written by a single writer thread, which drains all records queued so far
+ * and flushes them with a single write, so crawl threads never wait for the disk.
+ * Records queued but not yet written are lost on a crash, which only causes their pages to be downloaded again.
+ * When a journal is opened, and whenever the records appended since the last snapshot outnumber
+ * both {@value #COMPACT_RECORDS} and the snapshot, the log is replaced by a snapshot holding
+ * the finished pages and the frontier, so the log stays proportional to the crawl state.
+ */
+class CrawlJournal implements AutoCloseable {
+    private static final String LOG = "crawl.log";
+    private static final String SNAPSHOT = "crawl.log.tmp";
+    private static final String HEADER = "#";
+    private static final String SCHEDULED = "+";
+    private static final String FINISHED = "=";
+    private static final String FAILED = "!";
+    private static final String STOP = "";
+    private static final int COMPACT_RECORDS = 1 << 16;
+
+    private final Map<String, Integer> frontier;
+    private final List<String> finished;
+    private final Map<String, IOException> errors = new HashMap<>();
+    private final BlockingQueue<String> records = new LinkedBlockingQueue<>();
+    private final Path log;
+    private final String header;
+    /**
+     * State of the crawl as written so far, owned by the writer thread once the journal is opened
+     */
+    private final State state = new State();
+    private BufferedWriter writer;
+    private final Thread writerThread;
+    private volatile IOException writeError;
+
+    private CrawlJournal(Path directory, String url, int depth) throws IOException {
+        Files.createDirectories(directory);
+        log = directory.resolve(LOG);
+        header = String.join("\t", HEADER, url, Integer.toString(depth));
+        if (Files.exists(log)) {
+            load();
+        }
+        frontier = new LinkedHashMap<>(state.frontier);
+        finished = new ArrayList<>(state.finished);
+        state.errors.forEach((page, message) -> errors.put(page, new IOException(message)));
+        compact();
+        writerThread = new Thread(this::writeRecords, "crawl-journal");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Opens the journal of the crawl, loading the state of a previous run of the same crawl if any.
+     *
+     * @param directory journal directory.
+     * @param url       start URL of the crawl.
+     * @param depth     depth of the crawl.
+     * @return opened journal.
+     * @throws IOException if the journal cannot be read or written, or belongs to another crawl.
+     */
+    static CrawlJournal open(Path directory, String url, int depth) throws IOException {
+        return new CrawlJournal(directory, url, depth);
+    }
+
+    private void load() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(log, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (null != line && !header.equals(line)) {
+                throw new IOException("Journal " + log + " belongs to another crawl: " + line);
+            }
+            while (null != (line = reader.readLine())) {
+                state.apply(line);
+            }
+        }
+    }
+
+    /**
+     * Replaces the log by a snapshot of the state and reopens it for appending.
+     *
+     * @throws IOException if the snapshot cannot be written.
+     */
+    private void compact() throws IOException {
+        if (null != writer) {
+            writer.close();
+        }
+        Path snapshot = log.resolveSibling(SNAPSHOT);
+        try (BufferedWriter out = Files.newBufferedWriter(snapshot, StandardCharsets.UTF_8)) {
+            out.write(header);
+            out.newLine();
+            state.writeTo(out);
+        }
+        Files.move(snapshot, log, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        writer = Files.newBufferedWriter(log, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * @return pages finished by previous runs.
+     */
+    List<String> getFinished() {
+        return finished;
+    }
+
+    /**
+     * @return pages failed in previous runs.
+     */
+    Map<String, IOException> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return scheduled but unfinished pages of previous runs with their depths, in scheduling order.
+     */
+    Map<String, Integer> getFrontier() {
+        return frontier;
+    }
+
+    void scheduled(String url, int depth) {
+        records.add(record(SCHEDULED, url, Integer.toString(depth)));
+    }
+
+    void finished(String url) {
+        records.add(record(FINISHED, url));
+    }
+
+    void failed(String url, IOException e) {
+        records.add(record(FAILED, url, String.valueOf(e.getMessage())));
+    }
+
+    private static String record(String... fields) {
+        return String.join("\t", fields).replace('\n', ' ').replace('\r', ' ');
+    }
+
+    private static void writeRecord(BufferedWriter out, String record) throws IOException {
+        out.write(record);
+        out.newLine();
+    }
+
+    private void writeRecords() {
+        List<String> batch = new ArrayList<>();
+        long appended = 0;
+        try {
+            while (true) {
+                batch.add(records.take());
+                records.drainTo(batch);
+                for (String record : batch) {
+                    if (STOP.equals(record)) {
+                        writer.flush();
+                        return;
+                    }
+                    writeRecord(writer, record);
+                    state.apply(record);
+                }
+                writer.flush();
+                appended += batch.size();
+                batch.clear();
+                if (appended > COMPACT_RECORDS && appended > state.size()) {
+                    compact();
+                    appended = 0;
+                }
+            }
+        } catch (IOException e) {
+            writeError = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes all queued records and closes the journal.
+     *
+     * @throws IOException if some records could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        records.add(STOP);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            if (null == writeError) {
+                writeError = e;
+            }
+        }
+        if (null != writeError) {
+            throw new IOException("Journal write failed", writeError);
+        }
+    }
+
+    /**
+     * Finished pages, failed pages with their messages and the frontier, built from the log records.
+     */
+    private static class State {
+        private final Map<String, Integer> frontier = new LinkedHashMap<>();
+        private final Set<String> finished = new LinkedHashSet<>();
+        private final Map<String, String> errors = new LinkedHashMap<>();
+
+        private void apply(String record) {
+            String[] parts = record.split("\t", 3);
+            if (parts.length < 2) {
+                return; // record torn by a crash
+            }
+            switch (parts[0]) {
+                case SCHEDULED:
+                    if (parts.length < 3 || finished.contains(parts[1]) || errors.containsKey(parts[1])) {
+                        return;
+                    }
+                    try {
+                        frontier.putIfAbsent(parts[1], Integer.parseInt(parts[2]));
+                    } catch (NumberFormatException e) {
+                        return;
+                    }
+                    break;
+                case FINISHED:
+                    frontier.remove(parts[1]);
+                    if (!errors.containsKey(parts[1])) {
+                        finished.add(parts[1]);
+                    }
+                    break;
+                case FAILED:
+                    frontier.remove(parts[1]);
+                    finished.remove(parts[1]);
+                    errors.putIfAbsent(parts[1], parts.length > 2 ? parts[2] : "");
+                    break;
+            }
+        }
+
+        private int size() {
+            return frontier.size() + finished.size() + errors.size();
+        }
+
+        private void writeTo(BufferedWriter out) throws IOException {
+            for (String page : finished) {
+                writeRecord(out, record(FINISHED, page));
+            }
+            for (Map.Entry<String, String> error : errors.entrySet()) {
+                writeRecord(out, record(FAILED, error.getKey(), error.getValue()));
+            }
+            for (Map.Entry<String, Integer> page : frontier.entrySet()) {
+                writeRecord(out, record(SCHEDULED, page.getKey(), page.getValue().toString()));
+            }
+        }
+    }
+}
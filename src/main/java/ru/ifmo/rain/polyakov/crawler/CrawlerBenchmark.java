@@ -0,0 +1,79 @@
+package ru.ifmo.rain.polyakov.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.ReplayDownloader;
+import info.kgeorgiy.java.advanced.crawler.Result;
+import info.kgeorgiy.java.advanced.crawler.URLUtils;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Benchmark of {@link WebCrawler} on the recorded sites of {@link ReplayDownloader}.
+ * Pages of the recorded sites are heavily skewed towards the site's own host,
+ * so with a small {@code perHost} limit most downloads compete for a few host slots
+ * while the pages of other hosts should still be downloaded at full speed.
+ * Prints the crawl time and the share of pages of the largest host for every {@code perHost} limit,
+ * both for the eager crawl and for the level-synchronous one.
+ */
+public class CrawlerBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        String url = "http://www.kgeorgiy.info";
+        int depth = 4;
+        int downloaders = 16;
+        int delay = 10;
+        try {
+            if (args.length > 0) {
+                url = args[0];
+            }
+            if (args.length > 1) {
+                depth = Integer.parseInt(args[1]);
+            }
+            if (args.length > 2) {
+                downloaders = Integer.parseInt(args[2]);
+            }
+            if (args.length > 3) {
+                delay = Integer.parseInt(args[3]);
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Command format:" +
+                    "\n\tCrawlerBenchmark [url [depth [downloaders [delayMillis]]]]");
+            return;
+        }
+
+        for (int perHost = 1; perHost <= downloaders; perHost *= 2) {
+            for (boolean byLevels : new boolean[]{false, true}) {
+                ReplayDownloader downloader = new ReplayDownloader(url, depth, delay, delay);
+                long start = System.nanoTime();
+                Result result;
+                try (WebCrawler crawler = new WebCrawler(downloader, downloaders, downloaders, perHost)) {
+                    result = byLevels
+                            ? crawler.downloadByLevels(url, depth, Integer.MAX_VALUE)
+                            : crawler.download(url, depth);
+                }
+                long elapsed = System.nanoTime() - start;
+                print(byLevels ? "levels" : "eager", perHost, result, elapsed);
+            }
+        }
+    }
+
+    private static void print(String mode, int perHost, Result result, long elapsed) {
+        Map<String, Long> hosts = result.getDownloaded().stream()
+                .collect(Collectors.groupingBy(CrawlerBenchmark::host, TreeMap::new, Collectors.counting()));
+        long largest = hosts.values().stream().mapToLong(Long::longValue).max().orElse(0);
+        System.out.printf("%s, perHost %d: %d pages of %d hosts (largest host %.0f%%) in %d ms%n",
+                mode, perHost, result.getDownloaded().size(), hosts.size(),
+                100.0 * largest / Math.max(1, result.getDownloaded().size()), elapsed / 1_000_000);
+    }
+
+    private static String host(String url) {
+        try {
+            return URLUtils.getHost(url);
+        } catch (MalformedURLException e) {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package ru.ifmo.rain.polyakov.crawler;
+
+import ru.ifmo.rain.polyakov.util.LatencyHistogram;
+
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Runtime statistics of a {@link WebCrawler}, collected once enabled by {@link WebCrawler#enableStats()}.
+ * <ul>
+ *     <li>fetch latency of the downloader, overall and per host;</li>
+ *     <li>schedule wait, from scheduling a page to starting its download, which grows when {@code perHost}
+ *     or the download pool is the limit, and permit wait of virtual thread downloads;</li>
+ *     <li>depths of the per-host, download and extraction queues;</li>
+ *     <li>downloaded pages per second and errors by exception type.</li>
+ * </ul>
+ * All values are read at call time, and {@link #toString()} gives a snapshot of all of them.
+ * Latencies are recorded in nanoseconds.
+ */
+public class CrawlerStats implements CrawlerStatsMBean {
+    private static final int TOP_HOSTS = 10;
+
+    private final LatencyHistogram fetchLatencies = new LatencyHistogram();
+    private final LatencyHistogram scheduleWaits = new LatencyHistogram();
+    private final LatencyHistogram permitWaits = new LatencyHistogram();
+    private final LatencyHistogram extractLatencies = new LatencyHistogram();
+    private final ConcurrentHashMap<String, LatencyHistogram> hostLatencies = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final LongAdder extracted = new LongAdder();
+    private final AtomicLong firstDownload = new AtomicLong();
+    private final IntSupplier hostQueueDepth;
+    private final IntSupplier downloadQueueDepth;
+    private final IntSupplier extractQueueDepth;
+    private ObjectName objectName;
+
+    CrawlerStats(IntSupplier hostQueueDepth, IntSupplier downloadQueueDepth, IntSupplier extractQueueDepth) {
+        this.hostQueueDepth = hostQueueDepth;
+        this.downloadQueueDepth = downloadQueueDepth;
+        this.extractQueueDepth = extractQueueDepth;
+    }
+
+    void started(long waited) {
+        scheduleWaits.record(waited);
+        firstDownload.compareAndSet(0, System.nanoTime());
+    }
+
+    void permitAcquired(long waited) {
+        permitWaits.record(waited);
+    }
+
+    void fetched(String host, long latency) {
+        fetchLatencies.record(latency);
+        hostLatencies.computeIfAbsent(host, h -> new LatencyHistogram()).record(latency);
+    }
+
+    void extracted(long latency) {
+        extracted.increment();
+        extractLatencies.record(latency);
+    }
+
+    void failed(Exception e) {
+        errors.computeIfAbsent(e.getClass().getSimpleName(), type -> new LongAdder()).increment();
+    }
+
+    synchronized void register(Object crawler) {
+        try {
+            objectName = new ObjectName("ru.ifmo.rain.polyakov.crawler:type=WebCrawler,id="
+                    + Integer.toHexString(System.identityHashCode(crawler)));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        } catch (JMException e) {
+            objectName = null;
+            System.err.println("Warning (stats): " + e.getMessage());
+        }
+    }
+
+    synchronized void unregister() {
+        if (null == objectName) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            System.err.println("Warning (stats): " + e.getMessage());
+        }
+        objectName = null;
+    }
+
+    public LatencyHistogram getFetchLatencies() {
+        return fetchLatencies;
+    }
+
+    /**
+     * @return fetch latency histograms by host.
+     */
+    public Map<String, LatencyHistogram> getHostLatencies() {
+        return hostLatencies;
+    }
+
+    public LatencyHistogram getScheduleWaits() {
+        return scheduleWaits;
+    }
+
+    public LatencyHistogram getPermitWaits() {
+        return permitWaits;
+    }
+
+    public LatencyHistogram getExtractLatencies() {
+        return extractLatencies;
+    }
+
+    @Override
+    public long getDownloaded() {
+        return fetchLatencies.getCount();
+    }
+
+    @Override
+    public long getExtracted() {
+        return extracted.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    /**
+     * @return error counts by exception class name.
+     */
+    public Map<String, Long> getErrorCounts() {
+        return errors.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().sum(), Long::sum, TreeMap::new));
+    }
+
+    @Override
+    public String getErrorsByType() {
+        return getErrorCounts().toString();
+    }
+
+    @Override
+    public double getPagesPerSecond() {
+        long start = firstDownload.get();
+        long elapsed = System.nanoTime() - start;
+        return start == 0 || elapsed <= 0 ? 0 : getDownloaded() * 1e9 / elapsed;
+    }
+
+    @Override
+    public int getHostQueueDepth() {
+        return hostQueueDepth.getAsInt();
+    }
+
+    @Override
+    public int getDownloadQueueDepth() {
+        return downloadQueueDepth.getAsInt();
+    }
+
+    @Override
+    public int getExtractQueueDepth() {
+        return extractQueueDepth.getAsInt();
+    }
+
+    @Override
+    public double getMeanFetchMillis() {
+        return fetchLatencies.getMean() / 1e6;
+    }
+
+    @Override
+    public double getFetchMillisP99() {
+        return fetchLatencies.getPercentile(99) / 1e6;
+    }
+
+    @Override
+    public double getMeanScheduleWaitMillis() {
+        return scheduleWaits.getMean() / 1e6;
+    }
+
+    @Override
+    public double getMeanPermitWaitMillis() {
+        return permitWaits.getMean() / 1e6;
+    }
+
+    @Override
+    public double getMeanExtractMillis() {
+        return extractLatencies.getMean() / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format(
+                "downloaded: %d (%.1f pages/s), extracted: %d, errors: %s%n"
+                        + "queues host/download/extract: %d/%d/%d%n"
+                        + "fetch ms mean/p99: %.3f/%.3f, schedule wait ms mean: %.3f, permit wait ms mean: %.3f, "
+                        + "extract ms mean: %.3f",
+                getDownloaded(), getPagesPerSecond(), getExtracted(), getErrorsByType(),
+                getHostQueueDepth(), getDownloadQueueDepth(), getExtractQueueDepth(),
+                getMeanFetchMillis(), getFetchMillisP99(), getMeanScheduleWaitMillis(), getMeanPermitWaitMillis(),
+                getMeanExtractMillis()));
+        hostLatencies.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, LatencyHistogram> e) -> e.getValue().getCount())
+                        .reversed())
+                .limit(TOP_HOSTS)
+                .forEach(e -> sb.append(String.format("%n  %s: %d pages, fetch ms p50/p99: %.3f/%.3f", e.getKey(),
+                        e.getValue().getCount(), e.getValue().getPercentile(50) / 1e6,
+                        e.getValue().getPercentile(99) / 1e6)));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,32 @@
+package ru.ifmo.rain.polyakov.crawler;
+
+/**
+ * JMX view of {@link CrawlerStats}. Times are in milliseconds.
+ */
+public interface CrawlerStatsMBean {
+    long getDownloaded();
+
+    long getExtracted();
+
+    long getErrors();
+
+    double getPagesPerSecond();
+
+    int getHostQueueDepth();
+
+    int getDownloadQueueDepth();
+
+    int getExtractQueueDepth();
+
+    double getMeanFetchMillis();
+
+    double getFetchMillisP99();
+
+    double getMeanScheduleWaitMillis();
+
+    double getMeanPermitWaitMillis();
+
+    double getMeanExtractMillis();
+
+    String getErrorsByType();
+}
@@ -0,0 +1,107 @@
+package ru.ifmo.rain.polyakov.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+import info.kgeorgiy.java.advanced.crawler.Result;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark of {@link WebCrawler} download pools on a synthetic site with artificial download latency.
+ * Compares fixed pools of several sizes with {@link WebCrawler#withVirtualThreads} when the JDK supports it.
+ */
+public class DownloadPoolBenchmark {
+
+    public static void main(String[] args) {
+        int pages = 2000;
+        int hosts = 20;
+        int latency = 20;
+        int perHost = 32;
+        try {
+            if (args.length > 0) {
+                pages = Integer.parseInt(args[0]);
+            }
+            if (args.length > 1) {
+                hosts = Integer.parseInt(args[1]);
+            }
+            if (args.length > 2) {
+                latency = Integer.parseInt(args[2]);
+            }
+            if (args.length > 3) {
+                perHost = Integer.parseInt(args[3]);
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Command format:" +
+                    "\n\tDownloadPoolBenchmark [pages [hosts [latencyMillis [perHost]]]]");
+            return;
+        }
+
+        Downloader downloader = new LatencyDownloader(pages, hosts, latency);
+        int extractors = Runtime.getRuntime().availableProcessors();
+        for (int downloaders : new int[]{8, 64, 512}) {
+            try (WebCrawler crawler = new WebCrawler(downloader, downloaders, extractors, perHost)) {
+                run("fixed pool of " + downloaders, crawler);
+            }
+        }
+        try (WebCrawler crawler = WebCrawler.withVirtualThreads(downloader, 512, perHost)) {
+            run("virtual threads, 512 permits", crawler);
+        } catch (UnsupportedOperationException e) {
+            System.out.println("virtual threads: " + e.getMessage());
+        }
+    }
+
+    private static void run(String name, WebCrawler crawler) {
+        long start = System.nanoTime();
+        Result result = crawler.download(LatencyDownloader.url(0, 0), Integer.MAX_VALUE);
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%s: %d pages in %d ms, %.0f pages/s, %d live threads%n",
+                name, result.getDownloaded().size(), elapsed / 1_000_000,
+                result.getDownloaded().size() * 1e9 / elapsed, Thread.activeCount());
+    }
+
+    /**
+     * Synthetic site of {@code pages} pages spread over {@code hosts} hosts,
+     * every page linking to a few random pages. Every download sleeps for the given latency.
+     */
+    private static class LatencyDownloader implements Downloader {
+        private static final int LINKS_PER_PAGE = 8;
+
+        private final int pages;
+        private final int hosts;
+        private final int latency;
+
+        private LatencyDownloader(int pages, int hosts, int latency) {
+            this.pages = pages;
+            this.hosts = hosts;
+            this.latency = latency;
+        }
+
+        private static String url(int host, int page) {
+            return "http://host" + host + ".test/" + page;
+        }
+
+        @Override
+        public Document download(String url) throws IOException {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted", e);
+            }
+            int page = Integer.parseInt(url.substring(url.lastIndexOf('/') + 1));
+            return () -> {
+                Random random = new Random(page);
+                List<String> links = new ArrayList<>();
+                links.add(url((page + 1) % pages % hosts, (page + 1) % pages));
+                for (int i = 1; i < LINKS_PER_PAGE; i++) {
+                    int target = random.nextInt(pages);
+                    links.add(url(target % hosts, target));
+                }
+                return links;
+            };
+        }
+    }
+}
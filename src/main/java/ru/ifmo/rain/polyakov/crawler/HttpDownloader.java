@@ -0,0 +1,37 @@
+package ru.ifmo.rain.polyakov.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+import info.kgeorgiy.java.advanced.crawler.URLUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLConnection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Downloader} fetching pages over the network without storing them anywhere,
+ * meant to be wrapped into a {@link TieredCacheDownloader}.
+ * The page is read into memory, and its links are parsed on {@link Document#extractLinks()}.
+ * Connecting and every read are bounded by timeouts, so a stalled host fails the download
+ * instead of holding the downloading thread forever.
+ */
+public class HttpDownloader implements Downloader {
+    private static final int CONNECT_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(10);
+    private static final int READ_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(30);
+
+    @Override
+    public Document download(String url) throws IOException {
+        URI uri = URLUtils.getURI(url);
+        URLConnection connection = uri.toURL().openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        byte[] page;
+        try (InputStream in = connection.getInputStream()) {
+            page = in.readAllBytes();
+        }
+        return () -> URLUtils.extractLinks(uri, new ByteArrayInputStream(page));
+    }
+}
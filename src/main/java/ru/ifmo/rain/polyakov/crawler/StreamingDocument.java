@@ -0,0 +1,29 @@
+package ru.ifmo.rain.polyakov.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.Document;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Document able to pass its links one by one as they are parsed, without collecting them into a list.
+ * {@link WebCrawler} prefers this method for documents implementing it.
+ */
+public interface StreamingDocument extends Document {
+    /**
+     * Passes links of the document to the consumer in document order.
+     *
+     * @param consumer link consumer returning {@code false} to stop the extraction.
+     * @throws IOException if the document cannot be parsed.
+     */
+    void forEachLink(Predicate<String> consumer) throws IOException;
+
+    @Override
+    default List<String> extractLinks() throws IOException {
+        List<String> links = new ArrayList<>();
+        forEachLink(links::add);
+        return links;
+    }
+}
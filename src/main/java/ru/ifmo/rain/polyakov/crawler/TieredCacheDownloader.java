@@ -0,0 +1,419 @@
+package ru.ifmo.rain.polyakov.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+import info.kgeorgiy.java.advanced.crawler.URLUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * {@link Downloader} decorator caching the links of downloaded pages in two size-bounded LRU tiers:
+ * in memory and, optionally, on disk. Disk entries survive restarts, so repeated crawls of overlapping sites
+ * do not download the same pages again.
+ * <br/><br/>
+ * Entries are keyed by the URL without fragment and expire after the given time to live.
+ * On a miss the page is downloaded and its links are extracted right away by the downloading thread,
+ * and only successfully extracted pages are cached.
+ * Concurrent downloads of the same URL wait for a single fill: download, extraction and caching.
+ * The disk tier is written without holding any lock, every entry through its own temporary file,
+ * which is only moved in place under the disk index lock. Expired and unreadable files are deleted
+ * only while the index still lists the very file that was read, so a concurrent rewrite is never lost.
+ */
+public class TieredCacheDownloader implements Downloader {
+    private static final int ENTRY_OVERHEAD = 64;
+    private static final int LINK_OVERHEAD = 48;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Downloader downloader;
+    private final long ttl;
+    private final long maxMemoryBytes;
+    private final Path directory;
+    private final long maxDiskBytes;
+
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, DiskFile> disk = new LinkedHashMap<>(16, 0.75f, true);
+    private final ConcurrentHashMap<String, CompletableFuture<List<String>>> inFlight = new ConcurrentHashMap<>();
+    private long memoryBytes;
+    private long diskBytes;
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a memory-only cache.
+     *
+     * @param downloader     underlying downloader.
+     * @param maxMemoryBytes approximate memory size bound.
+     * @param ttl            entry time to live.
+     * @param unit           time to live unit.
+     */
+    public TieredCacheDownloader(Downloader downloader, long maxMemoryBytes, long ttl, TimeUnit unit) {
+        this.downloader = downloader;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.ttl = unit.toMillis(ttl);
+        this.directory = null;
+        this.maxDiskBytes = 0;
+    }
+
+    /**
+     * Creates a cache with a disk tier, picking up the entries left in the directory by previous runs.
+     *
+     * @param downloader     underlying downloader.
+     * @param maxMemoryBytes approximate memory size bound.
+     * @param directory      disk tier directory.
+     * @param maxDiskBytes   disk tier size bound.
+     * @param ttl            entry time to live.
+     * @param unit           time to live unit.
+     * @throws IOException if the directory cannot be created or listed.
+     */
+    public TieredCacheDownloader(Downloader downloader, long maxMemoryBytes, Path directory, long maxDiskBytes,
+                                 long ttl, TimeUnit unit) throws IOException {
+        this.downloader = downloader;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.ttl = unit.toMillis(ttl);
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskBytes;
+        Files.createDirectories(directory);
+        Map<String, BasicFileAttributes> entries = new HashMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    continue;
+                }
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    if (attributes.isRegularFile()) {
+                        entries.put(name, attributes);
+                    }
+                } catch (IOException e) {
+                    // removed by another cache sharing the directory while it was listed
+                }
+            }
+        }
+        synchronized (disk) {
+            entries.entrySet().stream()
+                    .sorted(Comparator.comparing(entry -> entry.getValue().lastModifiedTime()))
+                    .forEach(entry -> {
+                        disk.put(entry.getKey(), new DiskFile(entry.getValue().size()));
+                        diskBytes += entry.getValue().size();
+                    });
+            evictFromDisk();
+        }
+    }
+
+    @Override
+    public Document download(String url) throws IOException {
+        String key = canonical(url);
+        List<String> cached = lookup(key);
+        List<String> links = null == cached ? fill(key, url) : cached;
+        return () -> links;
+    }
+
+    /**
+     * Downloads the page, extracts its links and caches them, unless the same fill is already in progress,
+     * in which case its result is awaited.
+     */
+    private List<String> fill(String key, String url) throws IOException {
+        CompletableFuture<List<String>> future = new CompletableFuture<>();
+        CompletableFuture<List<String>> existing = inFlight.putIfAbsent(key, future);
+        if (null != existing) {
+            coalesced.increment();
+            return await(existing);
+        }
+        try {
+            // another fill may have completed between the lookup and taking over the key
+            List<String> links = lookup(key);
+            if (null == links) {
+                misses.increment();
+                links = Collections.unmodifiableList(new ArrayList<>(downloader.download(url).extractLinks()));
+                put(new Entry(key, links, System.currentTimeMillis() + ttl));
+            }
+            future.complete(links);
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+        } finally {
+            inFlight.remove(key, future);
+        }
+        return await(future);
+    }
+
+    private static List<String> await(CompletableFuture<List<String>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for download", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    private List<String> lookup(String key) {
+        long now = System.currentTimeMillis();
+        synchronized (memory) {
+            Entry entry = memory.get(key);
+            if (null != entry) {
+                if (entry.expires > now) {
+                    memoryHits.increment();
+                    return entry.links;
+                }
+                memory.remove(key);
+                memoryBytes -= entry.size();
+            }
+        }
+        if (null == directory) {
+            return null;
+        }
+        Entry entry = readFromDisk(key, now);
+        if (null == entry) {
+            return null;
+        }
+        diskHits.increment();
+        putInMemory(entry);
+        return entry.links;
+    }
+
+    private void put(Entry entry) {
+        putInMemory(entry);
+        if (null != directory) {
+            writeToDisk(entry);
+        }
+    }
+
+    private void putInMemory(Entry entry) {
+        synchronized (memory) {
+            Entry previous = memory.put(entry.key, entry);
+            if (null != previous) {
+                memoryBytes -= previous.size();
+            }
+            memoryBytes += entry.size();
+            for (Iterator<Entry> it = memory.values().iterator(); memoryBytes > maxMemoryBytes && it.hasNext(); ) {
+                memoryBytes -= it.next().size();
+                it.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    private Entry readFromDisk(String key, long now) {
+        String name = fileName(key);
+        DiskFile indexed;
+        synchronized (disk) {
+            indexed = disk.get(name);
+        }
+        if (null == indexed) {
+            return null;
+        }
+        Path file = directory.resolve(name);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String storedKey = reader.readLine();
+            String expires = reader.readLine();
+            if (!key.equals(storedKey) || null == expires) {
+                return null;
+            }
+            if (Long.parseLong(expires) <= now) {
+                removeFromDisk(name, indexed);
+                return null;
+            }
+            List<String> links = new ArrayList<>();
+            for (String line; null != (line = reader.readLine()); ) {
+                links.add(line);
+            }
+            return new Entry(key, Collections.unmodifiableList(links), Long.parseLong(expires));
+        } catch (IOException | NumberFormatException e) {
+            removeFromDisk(name, indexed);
+            return null;
+        }
+    }
+
+    private void writeToDisk(Entry entry) {
+        String name = fileName(entry.key);
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(directory, name, TEMP_SUFFIX);
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(entry.key);
+                writer.newLine();
+                writer.write(Long.toString(entry.expires));
+                writer.newLine();
+                for (String link : entry.links) {
+                    writer.write(link);
+                    writer.newLine();
+                }
+            }
+            long size = Files.size(temp);
+            synchronized (disk) {
+                Files.move(temp, directory.resolve(name), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                DiskFile previous = disk.put(name, new DiskFile(size));
+                diskBytes += size - (null == previous ? 0 : previous.size);
+                evictFromDisk();
+            }
+        } catch (IOException e) {
+            System.err.println("Warning (page cache): " + e.getMessage());
+            if (null != temp) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the file read from the disk tier, unless it has been rewritten since.
+     *
+     * @param name    file name.
+     * @param indexed index entry of the file at the time it was read.
+     */
+    private void removeFromDisk(String name, DiskFile indexed) {
+        synchronized (disk) {
+            if (!disk.remove(name, indexed)) {
+                return;
+            }
+            diskBytes -= indexed.size;
+            try {
+                Files.deleteIfExists(directory.resolve(name));
+            } catch (IOException e) {
+                System.err.println("Warning (page cache): " + e.getMessage());
+            }
+        }
+    }
+
+    private void evictFromDisk() {
+        for (Iterator<Map.Entry<String, DiskFile>> it = disk.entrySet().iterator(); diskBytes > maxDiskBytes && it.hasNext(); ) {
+            Map.Entry<String, DiskFile> victim = it.next();
+            diskBytes -= victim.getValue().size;
+            it.remove();
+            evictions.increment();
+            try {
+                Files.deleteIfExists(directory.resolve(victim.getKey()));
+            } catch (IOException e) {
+                System.err.println("Warning (page cache): " + e.getMessage());
+            }
+        }
+    }
+
+    private static String canonical(String url) {
+        try {
+            return URLUtils.getURI(url).toString();
+        } catch (MalformedURLException e) {
+            return URLUtils.removeFragment(url);
+        }
+    }
+
+    private static String fileName(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                name.append(String.format("%02x", hash[i]));
+            }
+            return name.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-256 is always supported", e);
+        }
+    }
+
+    public long getMemoryHits() {
+        return memoryHits.sum();
+    }
+
+    public long getDiskHits() {
+        return diskHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return downloads served by another download of the same URL in progress.
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return share of downloads served without the underlying downloader.
+     */
+    public double getHitRate() {
+        long hits = getMemoryHits() + getDiskHits() + getCoalesced();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hit rate: %.1f%%, memory hits: %d, disk hits: %d, coalesced: %d, misses: %d, evictions: %d",
+                getHitRate() * 100, getMemoryHits(), getDiskHits(), getCoalesced(), getMisses(), getEvictions());
+    }
+
+    /**
+     * Cached links of a page.
+     */
+    private static class Entry {
+        private final String key;
+        private final List<String> links;
+        private final long expires;
+
+        private Entry(String key, List<String> links, long expires) {
+            this.key = key;
+            this.links = links;
+            this.expires = expires;
+        }
+
+        private long size() {
+            long size = ENTRY_OVERHEAD + 2L * key.length();
+            for (String link : links) {
+                size += LINK_OVERHEAD + 2L * link.length();
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Disk index entry. Every write creates a new one, so an entry identifies the file version it was read from.
+     */
+    private static class DiskFile {
+        private final long size;
+
+        private DiskFile(long size) {
+            this.size = size;
+        }
+    }
+}
@@ -1,69 +1,290 @@
 package ru.ifmo.rain.polyakov.crawler;
 
-import info.kgeorgiy.java.advanced.crawler.CachingDownloader;
 import info.kgeorgiy.java.advanced.crawler.*;
+import ru.ifmo.rain.polyakov.util.VirtualThreads;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
+/**
+ * Parallel crawler limiting the number of simultaneous downloads per host.
+ * Downloads wait in per-host queues and are handed to the download pool only when their host has a free slot,
+ * so download threads never block on a busy host while pages of other hosts are waiting.
+ * Completion is tracked by a counter of unfinished tasks, so nothing is retained for finished pages
+ * except their URLs. URLs without a valid host are reported as errors with their {@link MalformedURLException}.
+ * <br/><br/>
+ * {@link #downloadByLevels} crawls breadth-first, one depth level at a time,
+ * which gives results independent of scheduling and allows limiting the number of pages.
+ * {@link #download(String, int, Path)} keeps the crawl state in a {@link CrawlJournal},
+ * so an interrupted crawl resumes where it stopped.
+ * <br/><br/>
+ * Links of a page are deduplicated and stripped of fragments before they are checked against visited pages,
+ * and at most {@code maxLinksPerPage} of them are taken; {@link StreamingDocument}s are never collected into a list.
+ * The queue of downloaded documents waiting for extraction may be bounded,
+ * in which case downloads pause while extraction falls behind.
+ * <br/><br/>
+ * {@link #withVirtualThreads} runs every download on its own virtual thread,
+ * limited only by global and per-host permits, while extraction runs on a pool sized to the processors.
+ * <br/><br/>
+ * {@link #enableStats()} starts collecting {@link CrawlerStats}; until then no time is measured.
+ */
 public class WebCrawler implements Crawler {
+    private static final long DEFAULT_CACHE_MEMORY_MB = 64;
+    private static final long DEFAULT_CACHE_DISK_MB = 1024;
+    private static final long DEFAULT_CACHE_TTL_MINUTES = 24 * 60;
+
     private final Downloader downloader;
     private final ExecutorService downloadExecutor, extractExecutor;
-    private final ConcurrentHashMap<String, Semaphore> hosts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, HostQueue> hosts = new ConcurrentHashMap<>();
+    private final Semaphore downloadPermits;
     private final int perHost;
+    private final int maxLinksPerPage;
+    private volatile CrawlerStats stats;
 
     public WebCrawler(Downloader downloader, int downloaders, int extractors, int perHost) {
+        this(downloader, downloaders, extractors, perHost, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxLinksPerPage maximal number of distinct links taken from a page.
+     * @param extractQueue    maximal number of downloaded documents waiting for extraction.
+     */
+    public WebCrawler(Downloader downloader, int downloaders, int extractors, int perHost,
+                      int maxLinksPerPage, int extractQueue) {
+        this(downloader, Executors.newFixedThreadPool(downloaders), null, extractors, perHost,
+                maxLinksPerPage, extractQueue);
+    }
+
+    private WebCrawler(Downloader downloader, ExecutorService downloadExecutor, Semaphore downloadPermits,
+                       int extractors, int perHost, int maxLinksPerPage, int extractQueue) {
+        if (maxLinksPerPage <= 0 || extractQueue <= 0) {
+            throw new IllegalArgumentException("Link and queue limits must be positive");
+        }
         this.downloader = downloader;
-        this.downloadExecutor = Executors.newFixedThreadPool(downloaders);
-        this.extractExecutor = Executors.newFixedThreadPool(extractors);
+        this.downloadExecutor = downloadExecutor;
+        this.downloadPermits = downloadPermits;
+        this.extractExecutor = new ThreadPoolExecutor(extractors, extractors, 0L, TimeUnit.MILLISECONDS,
+                extractQueue == Integer.MAX_VALUE ? new LinkedBlockingQueue<>() : new ArrayBlockingQueue<>(extractQueue),
+                WebCrawler::waitForSpace);
         this.perHost = perHost;
+        this.maxLinksPerPage = maxLinksPerPage;
+    }
+
+    /**
+     * Creates a crawler running every download on a new virtual thread.
+     * Virtual threads are only available on JDK 21+.
+     *
+     * @param downloader   downloader to use.
+     * @param maxDownloads maximal number of simultaneous downloads.
+     * @param perHost      maximal number of simultaneous downloads from a single host.
+     * @return virtual thread crawler.
+     * @throws UnsupportedOperationException if running JDK does not support virtual threads.
+     */
+    public static WebCrawler withVirtualThreads(Downloader downloader, int maxDownloads, int perHost) {
+        return new WebCrawler(downloader, VirtualThreads.newVirtualThreadPerTaskExecutor(), new Semaphore(maxDownloads),
+                Runtime.getRuntime().availableProcessors(), perHost, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Starts collecting statistics of this crawler and registers them as an MBean
+     * under {@code ru.ifmo.rain.polyakov.crawler:type=WebCrawler,id=<identity hash>}.
+     *
+     * @return statistics of the crawler.
+     */
+    public synchronized CrawlerStats enableStats() {
+        if (null == stats) {
+            CrawlerStats enabled = new CrawlerStats(
+                    () -> hosts.values().stream().mapToInt(HostQueue::size).sum(),
+                    () -> queueSize(downloadExecutor),
+                    () -> queueSize(extractExecutor));
+            enabled.register(this);
+            stats = enabled;
+        }
+        return stats;
+    }
+
+    /**
+     * @return statistics of the crawler or {@code null} if they are not enabled.
+     */
+    public CrawlerStats getStats() {
+        return stats;
+    }
+
+    private static int queueSize(ExecutorService executor) {
+        return executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getQueue().size() : 0;
+    }
+
+    /**
+     * Blocks the downloading thread until the extraction queue has space.
+     * Extraction never waits for downloads, so this cannot deadlock.
+     */
+    private static void waitForSpace(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Crawler is closed");
+        }
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for extraction", e);
+        }
+        // the queue may have been drained by close() while waiting
+        if (executor.isShutdown() && executor.getQueue().remove(task)) {
+            throw new RejectedExecutionException("Crawler is closed");
+        }
     }
 
     @Override
     public Result download(String s, int i) {
         Cache cache = new Cache(i);
-        cache.urls.put(s, s);
-        cache.queue.add(downloadExecutor.submit(new DownloadTask(cache, 0, s)));
+        cache.visit(s, 0);
+        schedule(cache, 0, s);
 
-        Future<?> future;
-        while (Objects.nonNull(future = cache.queue.poll())) {
-            try {
-                future.get();
-            } catch (ExecutionException | InterruptedException e) {
-                e.printStackTrace();
+        return await(cache);
+    }
+
+    /**
+     * Crawls with the state journaled in the given directory.
+     * If the directory holds the journal of an unfinished crawl with the same start URL and depth,
+     * the crawl is resumed: finished and failed pages are not downloaded again,
+     * and the pages scheduled but not finished are scheduled anew.
+     *
+     * @param url       start URL.
+     * @param depth     crawl depth.
+     * @param directory journal directory.
+     * @return downloaded pages and errors, including ones of the previous runs.
+     * @throws IOException if the journal cannot be read or belongs to another crawl.
+     */
+    public Result download(String url, int depth, Path directory) throws IOException {
+        try (CrawlJournal journal = CrawlJournal.open(directory, url, depth)) {
+            Cache cache = new Cache(depth);
+            cache.urls.addAll(journal.getFinished());
+            cache.urls.addAll(journal.getErrors().keySet());
+            cache.errors.putAll(journal.getErrors());
+            cache.urls.addAll(journal.getFrontier().keySet());
+            cache.journal = journal;
+            if (cache.urls.isEmpty()) {
+                cache.visit(url, 0);
+                schedule(cache, 0, url);
             }
+            journal.getFrontier().forEach((page, pageDepth) -> schedule(cache, pageDepth, page));
+            return await(cache);
+        }
+    }
 
+    private Result await(Cache cache) {
+        try {
+            cache.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        List<String> result = new ArrayList<>(cache.urls.keySet());
+        List<String> result = new ArrayList<>(cache.urls);
         result.removeAll(cache.errors.keySet());
 
         return new Result(result, cache.errors);
     }
 
+    /**
+     * Level-synchronous breadth-first crawl. Pages of a level are downloaded in parallel,
+     * and links found on them form the next level, deduplicated and sorted,
+     * which is started only after the current level is done.
+     * Once the page budget is reached, the rest of the level is skipped in link order.
+     *
+     * @param url      start URL.
+     * @param depth    crawl depth, the start page being at depth {@code 1}.
+     * @param maxPages maximal number of pages to download.
+     * @return downloaded pages and errors.
+     */
+    public Result downloadByLevels(String url, int depth, int maxPages) {
+        Cache cache = new Cache(depth);
+        List<String> level = List.of(url);
+        for (int d = 0; d < depth && !level.isEmpty() && cache.urls.size() < maxPages; d++) {
+            if (level.size() > maxPages - cache.urls.size()) {
+                level = level.subList(0, maxPages - cache.urls.size());
+            }
+            cache.urls.addAll(level);
+            cache.nextLevel = d + 1 < depth ? ConcurrentHashMap.newKeySet() : null;
+            for (String s : level) {
+                schedule(cache, d, s);
+            }
+            try {
+                cache.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            level = new ArrayList<>();
+            if (null != cache.nextLevel) {
+                cache.nextLevel.removeAll(cache.urls);
+                level = new ArrayList<>(cache.nextLevel);
+                Collections.sort(level);
+            }
+        }
+        List<String> result = new ArrayList<>(cache.urls);
+        result.removeAll(cache.errors.keySet());
+
+        return new Result(result, cache.errors);
+    }
+
+    /**
+     * Stops the crawler. Downloads and extractions which have not started yet are reported as failed,
+     * so crawls in progress return.
+     */
     @Override
     public void close() {
+        RejectedExecutionException closed = new RejectedExecutionException("Crawler is closed");
         try {
-            downloadExecutor.shutdownNow();
+            for (Runnable task : downloadExecutor.shutdownNow()) {
+                if (task instanceof HostQueue.Submitted) {
+                    ((HostQueue.Submitted) task).rejected(closed);
+                }
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
         try {
-            extractExecutor.shutdownNow();
+            for (Runnable task : extractExecutor.shutdownNow()) {
+                if (task instanceof ExtractTask) {
+                    ((ExtractTask) task).rejected(closed);
+                }
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
+        if (null != stats) {
+            stats.unregister();
+        }
     }
 
+    /**
+     * Crawls the site, printing downloaded pages to {@code System.out} and errors to {@code System.err}.
+     * Pages are downloaded through a {@link TieredCacheDownloader}, with a disk tier if a cache directory is given.
+     * <br/>
+     * Arguments: {@code url [depth [downloaders [extractors [perHost [maxPages
+     * [cacheDirectory [cacheMemoryMB [cacheDiskMB [cacheTtlMinutes]]]]]]]]]},
+     * a negative {@code maxPages} meaning an unlimited eager crawl.
+     */
     public static void main(String... args) throws Exception {
-        int depth = 1, downloadors = Integer.MAX_VALUE,
-                extractors = Integer.MAX_VALUE, perHost = Integer.MAX_VALUE;
+        int depth = 1, downloadors = 64,
+                extractors = Runtime.getRuntime().availableProcessors(), perHost = Integer.MAX_VALUE;
         if (args.length < 1) {
             throw new RuntimeException("No url had been passed.");
         }
         String url = args[0];
-        for (int i = 1; i < args.length && i < 5; i++) {
+        int maxPages = -1;
+        Path cacheDirectory = null;
+        long cacheMemoryMB = DEFAULT_CACHE_MEMORY_MB, cacheDiskMB = DEFAULT_CACHE_DISK_MB,
+                cacheTtlMinutes = DEFAULT_CACHE_TTL_MINUTES;
+        for (int i = 1; i < args.length && i < 10; i++) {
+            if (i == 6) {
+                cacheDirectory = Path.of(args[i]);
+                continue;
+            }
             int n = Integer.valueOf(args[i]);
             switch (i) {
                 case 1:
@@ -78,27 +299,201 @@ public class WebCrawler implements Crawler {
                 case 4:
                     perHost = n;
                     break;
+                case 5:
+                    maxPages = n;
+                    break;
+                case 7:
+                    cacheMemoryMB = n;
+                    break;
+                case 8:
+                    cacheDiskMB = n;
+                    break;
+                case 9:
+                    cacheTtlMinutes = n;
+                    break;
             }
         }
+        TieredCacheDownloader downloader = null == cacheDirectory
+                ? new TieredCacheDownloader(new HttpDownloader(), cacheMemoryMB << 20, cacheTtlMinutes, TimeUnit.MINUTES)
+                : new TieredCacheDownloader(new HttpDownloader(), cacheMemoryMB << 20, cacheDirectory, cacheDiskMB << 20,
+                cacheTtlMinutes, TimeUnit.MINUTES);
         Result result;
-        try (Crawler crawler = new WebCrawler(new CachingDownloader(), downloadors, extractors, perHost)) {
-            result = crawler.download(url, depth);
+        try (WebCrawler crawler = new WebCrawler(downloader, downloadors, extractors, perHost)) {
+            result = maxPages < 0 ? crawler.download(url, depth) : crawler.downloadByLevels(url, depth, maxPages);
         }
         if (Objects.nonNull(result)) {
             result.getDownloaded().forEach(System.out::println);
             result.getErrors().forEach((k, v) -> System.err.printf("Error on url %s: %s\n", k, String.valueOf(v)));
         }
+        System.err.println("Page cache: " + downloader);
+    }
+
+    /**
+     * Queues the download of the page to its host. A URL without a valid host is never downloaded
+     * and is reported as failed rather than as downloaded.
+     */
+    private void schedule(Cache cache, int depth, String url) {
+        String host;
+        try {
+            host = URLUtils.getHost(url);
+        } catch (MalformedURLException e) {
+            cache.failed(url, e);
+            return;
+        }
+        cache.started();
+        hosts.computeIfAbsent(host, h -> new HostQueue()).add(new DownloadTask(cache, depth, url, host));
+    }
+
+    /**
+     * Downloads of a single host. At most {@code perHost} of them are submitted to the download pool,
+     * the rest wait here and are submitted one by one as running downloads finish.
+     */
+    protected class HostQueue {
+        private final Queue<DownloadTask> waiting = new ArrayDeque<>();
+        private int running;
+
+        void add(DownloadTask task) {
+            synchronized (this) {
+                if (running >= perHost) {
+                    waiting.add(task);
+                    return;
+                }
+                running++;
+            }
+            submit(task);
+        }
+
+        void finished() {
+            DownloadTask next;
+            synchronized (this) {
+                next = waiting.poll();
+                if (null == next) {
+                    running--;
+                    return;
+                }
+            }
+            submit(next);
+        }
+
+        synchronized int size() {
+            return waiting.size();
+        }
+
+        private void submit(DownloadTask task) {
+            try {
+                downloadExecutor.execute(new Submitted(task));
+            } catch (RejectedExecutionException e) {
+                rejected(task, e);
+            }
+        }
+
+        /**
+         * Fails the rejected download and all downloads waiting behind it, as the pool no longer accepts tasks.
+         */
+        private void rejected(DownloadTask task, RejectedExecutionException e) {
+            List<DownloadTask> tasks = new ArrayList<>();
+            tasks.add(task);
+            synchronized (this) {
+                tasks.addAll(waiting);
+                waiting.clear();
+                running--;
+            }
+            for (DownloadTask rejected : tasks) {
+                rejected.cache.failed(rejected.url, new IOException("Download rejected: " + e.getMessage(), e));
+                rejected.cache.finished();
+            }
+        }
+
+        /**
+         * Download submitted to the pool, releasing its host slot when done.
+         */
+        private class Submitted implements Runnable {
+            private final DownloadTask task;
+
+            private Submitted(DownloadTask task) {
+                this.task = task;
+            }
+
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                } finally {
+                    finished();
+                    task.cache.finished();
+                }
+            }
+
+            private void rejected(RejectedExecutionException e) {
+                HostQueue.this.rejected(task, e);
+            }
+        }
     }
 
+    /**
+     * State of a single {@link #download} call.
+     * Every task is counted as started before it is queued and as finished after it has queued its successors,
+     * so the counter only drops to zero when the crawl is over.
+     */
     protected class Cache {
-        protected ConcurrentHashMap<String, String> urls = new ConcurrentHashMap<>();
+        protected Set<String> urls = ConcurrentHashMap.newKeySet();
         protected ConcurrentHashMap<String, IOException> errors = new ConcurrentHashMap<>();
-        protected ConcurrentLinkedQueue<Future<?>> queue = new ConcurrentLinkedQueue<>();
+        protected AtomicInteger pending = new AtomicInteger();
+        /**
+         * Links of the next level in {@link #downloadByLevels}, {@code null} when links are scheduled at once.
+         */
+        protected volatile Set<String> nextLevel;
+        protected CrawlJournal journal;
         protected int maxDepth;
 
         Cache(int depth) {
             this.maxDepth = depth;
         }
+
+        boolean visit(String url, int depth) {
+            if (!urls.add(url)) {
+                return false;
+            }
+            if (Objects.nonNull(journal)) {
+                journal.scheduled(url, depth);
+            }
+            return true;
+        }
+
+        void done(String url) {
+            if (Objects.nonNull(journal)) {
+                journal.finished(url);
+            }
+        }
+
+        void failed(String url, IOException e) {
+            errors.putIfAbsent(url, e);
+            CrawlerStats crawlerStats = stats;
+            if (Objects.nonNull(crawlerStats)) {
+                crawlerStats.failed(e);
+            }
+            if (Objects.nonNull(journal)) {
+                journal.failed(url, e);
+            }
+        }
+
+        void started() {
+            pending.incrementAndGet();
+        }
+
+        void finished() {
+            if (pending.decrementAndGet() == 0) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+
+        synchronized void await() throws InterruptedException {
+            while (pending.get() > 0) {
+                wait();
+            }
+        }
     }
 
     protected class ExtractTask implements Runnable {
@@ -116,64 +511,130 @@ public class WebCrawler implements Crawler {
 
         @Override
         public void run() {
+            CrawlerStats crawlerStats = stats;
+            long start = Objects.isNull(crawlerStats) ? 0 : System.nanoTime();
             try {
-                List<String> result = document.extractLinks();
-                ++depth;
+                extract();
+                if (Objects.nonNull(crawlerStats)) {
+                    crawlerStats.extracted(System.nanoTime() - start);
+                }
+                cache.done(url);
+            } catch (IOException e) {
+                cache.failed(url, e);
+            } finally {
+                cache.finished();
+            }
+        }
 
-                if (depth >= cache.maxDepth)
-                    return;
+        private void rejected(RejectedExecutionException e) {
+            cache.failed(url, new IOException("Extraction rejected: " + e.getMessage(), e));
+            cache.finished();
+        }
+
+        private void extract() throws IOException {
+            Set<String> result = extractLinks();
+            ++depth;
+
+            if (depth >= cache.maxDepth)
+                return;
+
+            Set<String> nextLevel = cache.nextLevel;
+            if (Objects.nonNull(nextLevel)) {
+                nextLevel.addAll(result);
+                return;
+            }
+            for (String s : result) {
+                if (cache.visit(s, depth))
+                    schedule(cache, depth, s);
+            }
+        }
 
-                for (String s : result) {
-                    if (cache.urls.put(s, s) == null)
-                        cache.queue.add(downloadExecutor.submit(new DownloadTask(cache, depth, s)));
+        /**
+         * @return distinct links of the page without fragments, at most {@code maxLinksPerPage} of them.
+         */
+        private Set<String> extractLinks() throws IOException {
+            Set<String> links = new LinkedHashSet<>();
+            Predicate<String> consumer = link -> {
+                links.add(URLUtils.removeFragment(link));
+                return links.size() < maxLinksPerPage;
+            };
+            if (document instanceof StreamingDocument) {
+                ((StreamingDocument) document).forEachLink(consumer);
+            } else {
+                for (String link : document.extractLinks()) {
+                    if (!consumer.test(link)) {
+                        break;
+                    }
                 }
-            } catch (IOException e) {
-                cache.errors.putIfAbsent(url, e);
             }
+            return links;
         }
     }
 
     protected class DownloadTask implements Runnable {
         private String url;
+        private String host;
         private Cache cache;
         private int depth;
+        private long scheduledAt;
 
-        DownloadTask(Cache cache, int depth, String url) {
+        DownloadTask(Cache cache, int depth, String url, String host) {
             this.url = url;
+            this.host = host;
             this.cache = cache;
             this.depth = depth;
+            this.scheduledAt = Objects.isNull(stats) ? 0 : System.nanoTime();
         }
 
         @Override
         public void run() {
+            CrawlerStats crawlerStats = stats;
+            if (Objects.nonNull(crawlerStats) && scheduledAt != 0) {
+                crawlerStats.started(System.nanoTime() - scheduledAt);
+            }
             Document document = null;
-            String host;
-
             try {
-                host = URLUtils.getHost(url);
-            } catch (MalformedURLException e) {
-                e.printStackTrace();
-                return;
+                document = download();
+            } catch (IOException e) {
+                cache.failed(url, e);
+            }
+            if (Objects.nonNull(document)) {
+                cache.started();
+                ExtractTask extractTask = new ExtractTask(cache, depth, url, document);
+                try {
+                    extractExecutor.execute(extractTask);
+                } catch (RejectedExecutionException e) {
+                    extractTask.rejected(e);
+                }
             }
+        }
 
-            Semaphore semaphore = hosts.compute(host, this::retreive);
-            semaphore.acquireUninterruptibly();
+        private Document download() throws IOException {
+            if (Objects.isNull(downloadPermits)) {
+                return fetch();
+            }
+            CrawlerStats crawlerStats = stats;
+            long start = Objects.isNull(crawlerStats) ? 0 : System.nanoTime();
+            downloadPermits.acquireUninterruptibly();
+            if (Objects.nonNull(crawlerStats)) {
+                crawlerStats.permitAcquired(System.nanoTime() - start);
+            }
             try {
-                document = downloader.download(url);
-            } catch (IOException e) {
-                cache.errors.putIfAbsent(url, e);
+                return fetch();
             } finally {
-                semaphore.release();
+                downloadPermits.release();
             }
-            if (Objects.nonNull(document))
-                cache.queue.add(extractExecutor.submit(new ExtractTask(cache, depth, url, document)));
         }
 
-        @SuppressWarnings("unused")
-        private Semaphore retreive(String url, Semaphore semaphore) {
-            return semaphore == null
-                    ? new Semaphore(perHost)
-                    : semaphore;
+        private Document fetch() throws IOException {
+            CrawlerStats crawlerStats = stats;
+            if (Objects.isNull(crawlerStats)) {
+                return downloader.download(url);
+            }
+            long start = System.nanoTime();
+            Document document = downloader.download(url);
+            crawlerStats.fetched(host, System.nanoTime() - start);
+            return document;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package ru.ifmo.rain.polyakov.hello;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Pool of equally sized byte buffers.
+ * {@link #acquire()} never blocks: when the pool is empty a new buffer is allocated,
+ * and buffers released into a full pool are left to the garbage collector,
+ * so at most {@code capacity} buffers are retained.
+ */
+class BufferPool {
+    private final BlockingQueue<byte[]> buffers;
+    private final int bufferSize;
+
+    BufferPool(int capacity, int bufferSize) {
+        this.buffers = new ArrayBlockingQueue<>(capacity);
+        this.bufferSize = bufferSize;
+    }
+
+    byte[] acquire() {
+        byte[] buffer = buffers.poll();
+        return null == buffer ? new byte[bufferSize] : buffer;
+    }
+
+    void release(byte[] buffer) {
+        buffers.offer(buffer);
+    }
+
+    int getBufferSize() {
+        return bufferSize;
+    }
+}
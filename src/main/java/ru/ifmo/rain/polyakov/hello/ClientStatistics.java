@@ -0,0 +1,88 @@
+package ru.ifmo.rain.polyakov.hello;
+
+import ru.ifmo.rain.polyakov.util.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of a single Hello client run.
+ * Round-trip times are only sampled from requests answered on the first attempt,
+ * while latencies cover every answered request from its first send.
+ */
+public class ClientStatistics {
+    private final LatencyHistogram roundTripTimes = new LatencyHistogram();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder datagramsSent = new LongAdder();
+    private final LongAdder datagramsReceived = new LongAdder();
+    private final LongAdder requestsSent = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    void sent(int requests) {
+        datagramsSent.increment();
+        requestsSent.add(requests);
+    }
+
+    void received() {
+        datagramsReceived.increment();
+    }
+
+    void timedOut() {
+        timeouts.increment();
+    }
+
+    void answered(long latency, boolean firstAttempt) {
+        latencies.record(latency);
+        if (firstAttempt) {
+            roundTripTimes.record(latency);
+        }
+    }
+
+    public LatencyHistogram getRoundTripTimes() {
+        return roundTripTimes;
+    }
+
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    public long getAnswered() {
+        return latencies.getCount();
+    }
+
+    public long getRetransmits() {
+        return Math.max(0, requestsSent.sum() - latencies.getCount());
+    }
+
+    /**
+     * @return share of sent datagrams which were not answered in time.
+     */
+    public double getLossRate() {
+        long n = datagramsSent.sum();
+        return n == 0 ? 0 : (double) timeouts.sum() / n;
+    }
+
+    /**
+     * Every datagram costs one send or receive call, so with batching this drops below two.
+     *
+     * @return datagrams sent and received per answered request.
+     */
+    public double getDatagramsPerRequest() {
+        long n = latencies.getCount();
+        return n == 0 ? 0 : (double) (datagramsSent.sum() + datagramsReceived.sum()) / n;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("answered: %d, retransmits: %d, loss rate: %.2f%%, datagrams per request: %.2f%n"
+                        + "rtt ms p50/p90/p99/max: %s%n"
+                        + "latency ms p50/p90/p99/max: %s",
+                getAnswered(), getRetransmits(), getLossRate() * 100, getDatagramsPerRequest(),
+                percentiles(roundTripTimes), percentiles(latencies));
+    }
+
+    private static String percentiles(LatencyHistogram histogram) {
+        return String.format("%.3f/%.3f/%.3f/%.3f",
+                histogram.getPercentile(50) / 1e6, histogram.getPercentile(90) / 1e6,
+                histogram.getPercentile(99) / 1e6, histogram.getMax() / 1e6);
+    }
+}
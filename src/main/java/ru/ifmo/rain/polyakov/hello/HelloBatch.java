@@ -0,0 +1,135 @@
+package ru.ifmo.rain.polyakov.hello;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Batched framing of the Hello protocol.
+ * A batch datagram starts with {@link #MAGIC} followed by messages,
+ * each prefixed with its length as an unsigned 16-bit big-endian number.
+ * The server answers a batch with a single batch datagram holding the responses in the same order.
+ * Plain Hello requests are text and never start with the magic, so both kinds are served on the same port.
+ */
+final class HelloBatch {
+    static final byte[] MAGIC = {0, 'H', 'B', 1};
+    static final int MAX_MESSAGE_LENGTH = 0xFFFF;
+    private static final int LENGTH_BYTES = 2;
+
+    private HelloBatch() {
+    }
+
+    /**
+     * @param data   datagram data.
+     * @param offset datagram offset.
+     * @param length datagram length.
+     * @return whether the datagram is a batch.
+     */
+    static boolean isBatch(byte[] data, int offset, int length) {
+        if (length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[offset + i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param datagram datagram between its position and limit.
+     * @return whether the datagram is a batch.
+     */
+    static boolean isBatch(ByteBuffer datagram) {
+        if (datagram.remaining() < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (datagram.get(datagram.position() + i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes responses to every request of the batch, each being the prefix followed by the request.
+     * Neither buffer position is changed; the response is written from index zero.
+     *
+     * @param request  batch datagram between its position and limit.
+     * @param response buffer to write the response batch into.
+     * @param prefix   response prefix.
+     * @return length of the response or {@code -1} if the batch is malformed or the response does not fit.
+     */
+    static int respond(ByteBuffer request, ByteBuffer response, byte[] prefix) {
+        ByteBuffer in = request.duplicate();
+        ByteBuffer out = response.duplicate().clear();
+        in.position(in.position() + MAGIC.length);
+        try {
+            out.put(MAGIC);
+            while (in.remaining() >= LENGTH_BYTES) {
+                int length = Short.toUnsignedInt(in.getShort());
+                if (length > in.remaining() || length + prefix.length > MAX_MESSAGE_LENGTH) {
+                    return -1;
+                }
+                out.putShort((short) (length + prefix.length)).put(prefix);
+                int limit = in.limit();
+                out.put(in.limit(in.position() + length));
+                in.limit(limit);
+            }
+        } catch (BufferOverflowException e) {
+            return -1;
+        }
+        return in.hasRemaining() ? -1 : out.position();
+    }
+
+    /**
+     * @param messages messages to put into a batch.
+     * @return batch datagram.
+     */
+    static byte[] encode(List<byte[]> messages) {
+        ByteBuffer out = ByteBuffer.allocate(encodedLength(messages));
+        out.put(MAGIC);
+        for (byte[] message : messages) {
+            out.putShort((short) message.length).put(message);
+        }
+        return out.array();
+    }
+
+    /**
+     * @param messages messages to put into a batch.
+     * @return length of the batch datagram.
+     */
+    static int encodedLength(List<byte[]> messages) {
+        int length = MAGIC.length;
+        for (byte[] message : messages) {
+            length += LENGTH_BYTES + message.length;
+        }
+        return length;
+    }
+
+    /**
+     * @param datagram datagram between its position and limit.
+     * @return messages of the batch or {@code null} if the datagram is not a well-formed batch.
+     */
+    static List<byte[]> decode(ByteBuffer datagram) {
+        if (!isBatch(datagram)) {
+            return null;
+        }
+        ByteBuffer in = datagram.duplicate();
+        in.position(in.position() + MAGIC.length);
+        List<byte[]> messages = new ArrayList<>();
+        while (in.remaining() >= LENGTH_BYTES) {
+            int length = Short.toUnsignedInt(in.getShort());
+            if (length > in.remaining()) {
+                return null;
+            }
+            byte[] message = new byte[length];
+            in.get(message);
+            messages.add(message);
+        }
+        return in.hasRemaining() ? null : messages;
+    }
+}
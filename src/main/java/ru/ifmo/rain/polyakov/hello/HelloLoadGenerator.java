@@ -0,0 +1,347 @@
+package ru.ifmo.rain.polyakov.hello;
+
+import ru.ifmo.rain.polyakov.util.LatencyHistogram;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load generator for Hello servers.
+ * Sends requests {@code 'load_' + sequence number} over a single non-blocking channel
+ * and records response latencies into a {@link LatencyHistogram} without printing anything.
+ * <ul>
+ *     <li><b>open loop</b> sends at a fixed rate regardless of responses; latency is measured
+ *     from the scheduled send time, so a stalled server is not hidden by a stalled generator;</li>
+ *     <li><b>closed loop</b> keeps a fixed number of requests outstanding, which measures maximal throughput.</li>
+ * </ul>
+ * Requests are never retransmitted: unanswered within {@link #LOSS_TIMEOUT} they are counted as lost.
+ * Every request sent within the last {@link #LOSS_TIMEOUT} is tracked, which bounds the open loop rate
+ * and the closed loop number of outstanding requests.
+ * @see LoadTest
+ */
+public class HelloLoadGenerator {
+
+    private static final byte[] REQUEST_PREFIX = "load_".getBytes(StandardCharsets.UTF_8);
+    private static final int MAX_DATAGRAM_SIZE = 65507;
+    private static final int MIN_SEQUENCE_RING_SIZE = 1 << 10;
+    private static final int MAX_SEQUENCE_RING_SIZE = 1 << 22;
+    private static final long LOSS_TIMEOUT = TimeUnit.SECONDS.toNanos(1);
+
+    private final InetSocketAddress serverAddress;
+
+    public HelloLoadGenerator(String host, int port) {
+        this.serverAddress = new InetSocketAddress(host, port);
+    }
+
+    public static void main(String[] args) {
+        if (null == args || args.length != 5 || !("open".equals(args[2]) || "closed".equals(args[2]))) {
+            System.err.println("Command format:" +
+                    "\n\tHelloLoadGenerator server port open requestsPerSecond seconds" +
+                    "\n\tHelloLoadGenerator server port closed outstandingRequests seconds");
+            return;
+        }
+        int port;
+        int load;
+        int seconds;
+        try {
+            port = Integer.parseInt(args[1]);
+            load = Integer.parseInt(args[3]);
+            seconds = Integer.parseInt(args[4]);
+        } catch (NumberFormatException e) {
+            System.err.println("Error, wrong number format: " + e.getMessage());
+            return;
+        }
+        var generator = new HelloLoadGenerator(args[0], port);
+        try {
+            Report report = "open".equals(args[2])
+                    ? generator.openLoop(load, seconds, TimeUnit.SECONDS)
+                    : generator.closedLoop(load, seconds, TimeUnit.SECONDS);
+            System.out.println(report);
+        } catch (IOException e) {
+            System.err.println("Socket error: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sends requests at a fixed rate.
+     *
+     * @param requestsPerSecond sending rate.
+     * @param duration          sending duration.
+     * @param unit              duration unit.
+     * @return run report.
+     * @throws IOException              on socket errors.
+     * @throws IllegalArgumentException if too many requests would be outstanding within {@link #LOSS_TIMEOUT}.
+     */
+    public Report openLoop(double requestsPerSecond, long duration, TimeUnit unit) throws IOException {
+        // requests are expired between sends, so up to two timeouts of requests may be tracked at once
+        double tracked = 2 * requestsPerSecond * LOSS_TIMEOUT / 1e9;
+        return new Run(requestsPerSecond, Integer.MAX_VALUE, ringSize(tracked), unit.toNanos(duration)).run();
+    }
+
+    /**
+     * Keeps fixed number of requests outstanding.
+     *
+     * @param outstanding number of outstanding requests.
+     * @param duration    sending duration.
+     * @param unit        duration unit.
+     * @return run report.
+     * @throws IOException              on socket errors.
+     * @throws IllegalArgumentException if too many requests are outstanding.
+     */
+    public Report closedLoop(int outstanding, long duration, TimeUnit unit) throws IOException {
+        return new Run(0, outstanding, ringSize(outstanding), unit.toNanos(duration)).run();
+    }
+
+    /**
+     * Returns size of the ring of outstanding requests.
+     *
+     * @param tracked maximal number of tracked requests.
+     * @return power of two not less than {@code tracked}.
+     * @throws IllegalArgumentException if more than {@link #MAX_SEQUENCE_RING_SIZE} requests would be tracked.
+     */
+    private static int ringSize(double tracked) {
+        if (!(tracked <= MAX_SEQUENCE_RING_SIZE)) {
+            throw new IllegalArgumentException("Load too high: " + (long) Math.ceil(tracked)
+                    + " requests would be tracked, at most " + MAX_SEQUENCE_RING_SIZE + " are supported");
+        }
+        int size = MIN_SEQUENCE_RING_SIZE;
+        while (size < tracked) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    /**
+     * Results of a single load run.
+     */
+    public static class Report {
+        private final LatencyHistogram latencies;
+        private final long sent;
+        private final long lost;
+        private final long elapsed;
+
+        private Report(LatencyHistogram latencies, long sent, long lost, long elapsed) {
+            this.latencies = latencies;
+            this.sent = sent;
+            this.lost = lost;
+            this.elapsed = elapsed;
+        }
+
+        public LatencyHistogram getLatencies() {
+            return latencies;
+        }
+
+        public long getSent() {
+            return sent;
+        }
+
+        public long getReceived() {
+            return latencies.getCount();
+        }
+
+        public long getLost() {
+            return lost;
+        }
+
+        /**
+         * @return answered requests per second.
+         */
+        public double getThroughput() {
+            return elapsed == 0 ? 0 : latencies.getCount() * 1e9 / elapsed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("sent: %d, received: %d, lost: %d, throughput: %.0f requests/s%n"
+                            + "latency ms p50/p99/p999/max: %.3f/%.3f/%.3f/%.3f",
+                    getSent(), getReceived(), getLost(), getThroughput(),
+                    latencies.getPercentile(50) / 1e6, latencies.getPercentile(99) / 1e6,
+                    latencies.getPercentile(99.9) / 1e6, latencies.getMax() / 1e6);
+        }
+    }
+
+    /**
+     * State of a single run. Outstanding requests are kept in a ring indexed by sequence number;
+     * as requests are sent in sequence order, the oldest outstanding one is always the first to expire.
+     * When the socket buffer is full, the run waits for {@link SelectionKey#OP_WRITE} instead of retrying.
+     */
+    private class Run {
+        private final double rate;
+        private final int maxOutstanding;
+        private final long duration;
+
+        private final int ringMask;
+        private final long[] sequences;
+        private final long[] startTimes;
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(REQUEST_PREFIX.length + 20);
+        private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(MAX_DATAGRAM_SIZE);
+        private long nextSequence;
+        private long oldestSequence;
+        private int outstanding;
+        private long lost;
+        private boolean writeBlocked;
+
+        private Run(double rate, int maxOutstanding, int ringSize, long duration) {
+            this.rate = rate;
+            this.maxOutstanding = maxOutstanding;
+            this.duration = duration;
+            ringMask = ringSize - 1;
+            sequences = new long[ringSize];
+            startTimes = new long[ringSize];
+            Arrays.fill(sequences, -1);
+        }
+
+        private Report run() throws IOException {
+            try (DatagramChannel channel = DatagramChannel.open();
+                 Selector selector = Selector.open()) {
+                channel.configureBlocking(false);
+                channel.connect(serverAddress);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+
+                long start = System.nanoTime();
+                long end = start + duration;
+                long now = start;
+                while (now - end < 0 || (outstanding > 0 && now - end < LOSS_TIMEOUT)) {
+                    expire(now);
+                    long wait = now - end < 0 ? Math.min(end - now, send(channel, key, start, now)) : LOSS_TIMEOUT;
+                    if (wait > TimeUnit.MILLISECONDS.toNanos(1)) {
+                        selector.select(TimeUnit.NANOSECONDS.toMillis(wait));
+                    } else {
+                        selector.selectNow();
+                    }
+                    selector.selectedKeys().clear();
+                    now = System.nanoTime();
+                    receive(channel, now);
+                    now = System.nanoTime();
+                }
+                lost += outstanding;
+                return new Report(latencies, nextSequence, lost, now - start);
+            }
+        }
+
+        /**
+         * Sends all due requests.
+         * If the socket buffer is full, subscribes to {@link SelectionKey#OP_WRITE} until it drains.
+         *
+         * @return nanoseconds until the next request is due.
+         */
+        private long send(DatagramChannel channel, SelectionKey key, long start, long now) throws IOException {
+            while (outstanding < maxOutstanding) {
+                long due = rate > 0 ? start + (long) (nextSequence * 1e9 / rate) : now;
+                if (due - now > 0) {
+                    return due - now;
+                }
+                if (nextSequence - oldestSequence > ringMask) {
+                    forget(oldestSequence++);
+                }
+                fillRequest(nextSequence);
+                try {
+                    if (channel.write(sendBuffer) == 0) {
+                        if (!writeBlocked) {
+                            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                            writeBlocked = true;
+                        }
+                        return LOSS_TIMEOUT;
+                    }
+                } catch (IOException e) {
+                    // connection refused is reported on the next operation, count the request as lost
+                    lost++;
+                    nextSequence++;
+                    continue;
+                }
+                if (writeBlocked) {
+                    key.interestOps(SelectionKey.OP_READ);
+                    writeBlocked = false;
+                }
+                int slot = (int) (nextSequence & ringMask);
+                sequences[slot] = nextSequence;
+                startTimes[slot] = due;
+                outstanding++;
+                nextSequence++;
+            }
+            return LOSS_TIMEOUT;
+        }
+
+        private void fillRequest(long sequence) {
+            sendBuffer.clear().put(REQUEST_PREFIX);
+            int digitsStart = sendBuffer.position();
+            do {
+                sendBuffer.put((byte) ('0' + sequence % 10));
+                sequence /= 10;
+            } while (sequence > 0);
+            for (int i = digitsStart, j = sendBuffer.position() - 1; i < j; i++, j--) {
+                byte digit = sendBuffer.get(i);
+                sendBuffer.put(i, sendBuffer.get(j));
+                sendBuffer.put(j, digit);
+            }
+            sendBuffer.flip();
+        }
+
+        private void receive(DatagramChannel channel, long now) {
+            while (true) {
+                receiveBuffer.clear();
+                try {
+                    if (null == channel.receive(receiveBuffer)) {
+                        return;
+                    }
+                } catch (IOException e) {
+                    return;
+                }
+                long sequence = parseSequence();
+                int slot = (int) (sequence & ringMask);
+                if (sequence >= 0 && sequences[slot] == sequence) {
+                    latencies.record(now - startTimes[slot]);
+                    sequences[slot] = -1;
+                    outstanding--;
+                }
+            }
+        }
+
+        /**
+         * Parses sequence number from the trailing digits of the response.
+         */
+        private long parseSequence() {
+            long sequence = 0;
+            long multiplier = 1;
+            int i = receiveBuffer.position() - 1;
+            for (; i >= 0 && multiplier <= 1_000_000_000_000_000L; i--) {
+                byte b = receiveBuffer.get(i);
+                if (b < '0' || b > '9') {
+                    break;
+                }
+                sequence += (b - '0') * multiplier;
+                multiplier *= 10;
+            }
+            return i == receiveBuffer.position() - 1 ? -1 : sequence;
+        }
+
+        private void expire(long now) {
+            while (oldestSequence < nextSequence) {
+                int slot = (int) (oldestSequence & ringMask);
+                if (sequences[slot] == oldestSequence && now - startTimes[slot] < LOSS_TIMEOUT) {
+                    return;
+                }
+                forget(oldestSequence++);
+            }
+        }
+
+        private void forget(long sequence) {
+            int slot = (int) (sequence & ringMask);
+            if (sequences[slot] == sequence) {
+                sequences[slot] = -1;
+                outstanding--;
+                lost++;
+            }
+        }
+    }
+}
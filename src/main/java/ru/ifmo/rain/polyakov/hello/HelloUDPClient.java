@@ -7,16 +7,24 @@ import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
 import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
 /**
  * Requests are sent simultaneously in the specified number of threads to server.
  * Each thread will wait for the processing of its request and output
  * the request itself and the result of its processing to the console.
  * If the request has not been processed, send it again.
+ * Retransmission timeout adapts to the measured round-trip time of the server.
+ * With batch size above one, each thread sends its requests in batches of the given size
+ * in a single datagram, see {@link HelloBatch}.
  * <br/><br/>
  * <b>Request text format:</b> 'query prefix' + 'thread number' + '_' + 'query number in thread'<br/>
  * <b>Answer from server format::</b> 'Hello, ' + 'received request text'
@@ -24,12 +32,30 @@ import java.util.concurrent.Executors;
  */
 public class HelloUDPClient implements HelloClient {
 
-    private static final int SOCKET_OPERATIONS_TIMEOUT = 1000;
+    private static final int MAX_DATAGRAM_SIZE = 65507;
+    private static final int MAX_RESPONSE_OVERHEAD = 64;
+
+    private final int batchSize;
+    private volatile ClientStatistics statistics = new ClientStatistics();
+
+    public HelloUDPClient() {
+        this(1);
+    }
+
+    /**
+     * @param batchSize number of requests sent in a single datagram, {@code 1} for plain requests.
+     */
+    public HelloUDPClient(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
 
     public static void main(String[] args) {
-        if (null == args || args.length != 5) {
+        if (null == args || args.length < 5 || args.length > 6) {
             System.err.println("Command format:" +
-                    "\n\tHelloUDPClient server port prefix threads requests");
+                    "\n\tHelloUDPClient server port prefix threads requests [batchSize]");
             return;
         }
         String server;
@@ -37,27 +63,40 @@ public class HelloUDPClient implements HelloClient {
         int port;
         int threads;
         int requests;
+        int batchSize;
         try {
             server = args[0];
             port = Integer.parseInt(args[1]);
             prefix = args[2];
             threads = Integer.parseInt(args[3]);
             requests = Integer.parseInt(args[4]);
+            batchSize = args.length == 6 ? Integer.parseInt(args[5]) : 1;
         } catch (NumberFormatException e) {
             System.err.println("Error, wrong number format: " + e.getMessage());
             return;
         }
-        new HelloUDPClient().run(server, port, prefix, threads, requests);
+        HelloUDPClient client = new HelloUDPClient(batchSize);
+        client.run(server, port, prefix, threads, requests);
+        System.out.println(client.getStatistics());
+    }
+
+    /**
+     * @return statistics of the last {@link #run} call.
+     */
+    public ClientStatistics getStatistics() {
+        return statistics;
     }
 
     @Override
     public void run(String host, int port, String prefix, int threads, int requests) {
         InetSocketAddress serverAddress = new InetSocketAddress(host, port);
+        RttEstimator estimator = new RttEstimator();
+        statistics = new ClientStatistics();
         ExecutorService executor = Executors.newFixedThreadPool(threads);
         CountDownLatch countDown = new CountDownLatch(threads);
         for (int threadNumber = 0; threadNumber < threads; threadNumber++) {
             String msgWithoutReqNum = prefix + threadNumber + "_";
-            executor.submit(new RequestSender(serverAddress, requests, msgWithoutReqNum, countDown));
+            executor.submit(new RequestSender(serverAddress, requests, msgWithoutReqNum, estimator, statistics, countDown));
         }
         try {
             countDown.await();
@@ -72,21 +111,35 @@ public class HelloUDPClient implements HelloClient {
         private final InetSocketAddress serverAddress;
         private final int requests;
         private final String msgWithoutReqNum;
+        private final RttEstimator estimator;
+        private final ClientStatistics statistics;
         private CountDownLatch countDown;
 
-        private RequestSender(InetSocketAddress serverAddress, int requests, String msgWithoutReqNum, CountDownLatch countDown) {
+        private RequestSender(InetSocketAddress serverAddress, int requests, String msgWithoutReqNum,
+                              RttEstimator estimator, ClientStatistics statistics, CountDownLatch countDown) {
             this.serverAddress = serverAddress;
             this.requests = requests;
             this.msgWithoutReqNum = msgWithoutReqNum;
+            this.estimator = estimator;
+            this.statistics = statistics;
             this.countDown = countDown;
         }
 
         @Override
         public void run() {
             try (DatagramSocket socket = new DatagramSocket()) {
-                socket.setSoTimeout(SOCKET_OPERATIONS_TIMEOUT);
-                for (int requestNumber = 0; requestNumber < requests; requestNumber++) {
-                    communicate(requestNumber, socket);
+                if (batchSize == 1) {
+                    for (int requestNumber = 0; requestNumber < requests; requestNumber++) {
+                        communicate(requestNumber, socket);
+                    }
+                } else {
+                    // both the batch and its response must fit into a single datagram
+                    int maxRequestLength = (msgWithoutReqNum + requests).getBytes(StandardCharsets.UTF_8).length;
+                    int batch = Math.max(1, Math.min(batchSize,
+                            MAX_DATAGRAM_SIZE / (maxRequestLength + MAX_RESPONSE_OVERHEAD)));
+                    for (int requestNumber = 0; requestNumber < requests; requestNumber += batch) {
+                        communicateBatch(requestNumber, Math.min(requests, requestNumber + batch), socket);
+                    }
                 }
             } catch (SocketException e) {
                 System.err.println("Socket error: " + e.getMessage());
@@ -99,13 +152,23 @@ public class HelloUDPClient implements HelloClient {
         private void communicate(int requestNumber, DatagramSocket socket) throws SocketException, InterruptedException {
             var requestText = msgWithoutReqNum + requestNumber;
             int bufferSize = socket.getReceiveBufferSize();
-            var sendPacket = new DatagramPacket(requestText.getBytes(StandardCharsets.UTF_8), requestText.length(), serverAddress);
+            byte[] requestData = requestText.getBytes(StandardCharsets.UTF_8);
+            var sendPacket = new DatagramPacket(requestData, requestData.length, serverAddress);
             var receivePacket = new DatagramPacket(new byte[bufferSize], bufferSize);
             boolean interrupted;
-            while (!(interrupted = Thread.interrupted())) {
+            long firstSent = System.nanoTime();
+            int timeouts = 0;
+            for (int attempt = 0; !(interrupted = Thread.interrupted()); attempt++) {
                 try {
+                    socket.setSoTimeout(estimator.timeoutMillis(timeouts));
                     socket.send(sendPacket);
+                    statistics.sent(1);
                     socket.receive(receivePacket);
+                    statistics.received();
+                } catch (SocketTimeoutException e) {
+                    timeouts++;
+                    statistics.timedOut();
+                    continue;
                 } catch (IOException e) {
                     System.err.println("Warning: " + e.getMessage());
                     continue;
@@ -113,6 +176,11 @@ public class HelloUDPClient implements HelloClient {
                 String responseText = new String(receivePacket.getData(), receivePacket.getOffset(),
                         receivePacket.getLength(), StandardCharsets.UTF_8);
                 if (responseText.contains(requestText)) {
+                    long latency = System.nanoTime() - firstSent;
+                    if (attempt == 0) {
+                        estimator.sample(latency);
+                    }
+                    statistics.answered(latency, attempt == 0);
                     System.out.println("Request: " + requestText);
                     System.out.println("Response: " + responseText);
                     break;
@@ -123,5 +191,65 @@ public class HelloUDPClient implements HelloClient {
                 throw new InterruptedException();
             }
         }
+
+        private void communicateBatch(int from, int to, DatagramSocket socket) throws SocketException, InterruptedException {
+            List<String> pending = new ArrayList<>();
+            for (int requestNumber = from; requestNumber < to; requestNumber++) {
+                pending.add(msgWithoutReqNum + requestNumber);
+            }
+            int bufferSize = socket.getReceiveBufferSize();
+            var receivePacket = new DatagramPacket(new byte[bufferSize], bufferSize);
+            boolean interrupted = false;
+            long firstSent = System.nanoTime();
+            int timeouts = 0;
+            for (int attempt = 0; !pending.isEmpty() && !(interrupted = Thread.interrupted()); attempt++) {
+                byte[] batch = HelloBatch.encode(pending.stream()
+                        .map(text -> text.getBytes(StandardCharsets.UTF_8))
+                        .collect(Collectors.toList()));
+                try {
+                    socket.setSoTimeout(estimator.timeoutMillis(timeouts));
+                    socket.send(new DatagramPacket(batch, batch.length, serverAddress));
+                    statistics.sent(pending.size());
+                    socket.receive(receivePacket);
+                    statistics.received();
+                } catch (SocketTimeoutException e) {
+                    timeouts++;
+                    statistics.timedOut();
+                    continue;
+                } catch (IOException e) {
+                    System.err.println("Warning: " + e.getMessage());
+                    continue;
+                }
+                List<byte[]> responses = HelloBatch.decode(ByteBuffer.wrap(receivePacket.getData(),
+                        receivePacket.getOffset(), receivePacket.getLength()));
+                if (null == responses) {
+                    continue;
+                }
+                // responses come in the order of requests, unanswered requests are sent in the next batch
+                long latency = System.nanoTime() - firstSent;
+                if (attempt == 0 && responses.size() == pending.size()) {
+                    estimator.sample(latency);
+                }
+                List<String> unanswered = new ArrayList<>();
+                for (int i = 0; i < pending.size(); i++) {
+                    String requestText = pending.get(i);
+                    String responseText = i < responses.size()
+                            ? new String(responses.get(i), StandardCharsets.UTF_8)
+                            : "";
+                    if (responseText.contains(requestText)) {
+                        statistics.answered(latency, attempt == 0);
+                        System.out.println("Request: " + requestText);
+                        System.out.println("Response: " + responseText);
+                    } else {
+                        unanswered.add(requestText);
+                    }
+                }
+                pending = unanswered;
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedException();
+            }
+        }
     }
 }
\ No newline at end of file
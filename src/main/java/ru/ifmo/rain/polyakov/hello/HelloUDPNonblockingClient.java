@@ -0,0 +1,299 @@
+package ru.ifmo.rain.polyakov.hello;
+
+import info.kgeorgiy.java.advanced.hello.HelloClient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pipelined variant of {@link HelloUDPClient}.
+ * All logical threads share a single non-blocking channel driven by the calling thread.
+ * Every logical thread still sends its requests one after another, but up to {@code window}
+ * requests of different threads are outstanding at the same time.
+ * Responses are matched to requests by content, and every outstanding request
+ * is retransmitted by its own timer, with timeouts adapting to the measured round-trip time.
+ * <br/><br/>
+ * Request and response formats are the same as in {@link HelloUDPClient}.
+ * @see HelloUDPServer
+ */
+public class HelloUDPNonblockingClient implements HelloClient {
+
+    private static final int MAX_DATAGRAM_SIZE = 65507;
+    private static final int DEFAULT_WINDOW = 256;
+
+    private final int window;
+    private volatile ClientStatistics statistics = new ClientStatistics();
+
+    public HelloUDPNonblockingClient() {
+        this(DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param window maximal number of outstanding requests on the channel.
+     */
+    public HelloUDPNonblockingClient(int window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("Window must be positive: " + window);
+        }
+        this.window = window;
+    }
+
+    public static void main(String[] args) {
+        if (null == args || args.length < 5 || args.length > 6) {
+            System.err.println("Command format:" +
+                    "\n\tHelloUDPNonblockingClient server port prefix threads requests [window]");
+            return;
+        }
+        String server;
+        String prefix;
+        int port;
+        int threads;
+        int requests;
+        int window;
+        try {
+            server = args[0];
+            port = Integer.parseInt(args[1]);
+            prefix = args[2];
+            threads = Integer.parseInt(args[3]);
+            requests = Integer.parseInt(args[4]);
+            window = args.length == 6 ? Integer.parseInt(args[5]) : DEFAULT_WINDOW;
+        } catch (NumberFormatException e) {
+            System.err.println("Error, wrong number format: " + e.getMessage());
+            return;
+        }
+        HelloUDPNonblockingClient client = new HelloUDPNonblockingClient(window);
+        client.run(server, port, prefix, threads, requests);
+        System.out.println(client.getStatistics());
+    }
+
+    /**
+     * @return statistics of the last {@link #run} call.
+     */
+    public ClientStatistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public void run(String host, int port, String prefix, int threads, int requests) {
+        statistics = new ClientStatistics();
+        if (threads <= 0 || requests <= 0) {
+            return;
+        }
+        try (DatagramChannel channel = DatagramChannel.open();
+             Selector selector = Selector.open()) {
+            channel.configureBlocking(false);
+            channel.connect(new InetSocketAddress(host, port));
+            channel.register(selector, SelectionKey.OP_READ);
+            new Session(channel, selector, prefix, threads, requests).run();
+        } catch (IOException e) {
+            System.err.println("Socket error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * State of a single {@link #run} call.
+     */
+    private class Session {
+        private final DatagramChannel channel;
+        private final Selector selector;
+        private final String prefix;
+        private final int requests;
+        private final RttEstimator estimator = new RttEstimator();
+        private final ClientStatistics statistics = HelloUDPNonblockingClient.this.statistics;
+
+        private final Request[] inFlight;
+        private final int[] nextRequest;
+        private final Queue<Integer> readyThreads = new ArrayDeque<>();
+        private final Queue<Request> sendQueue = new ArrayDeque<>();
+        private final PriorityQueue<Timer> timers = new PriorityQueue<>(Comparator.comparingLong(t -> t.deadline));
+        private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(MAX_DATAGRAM_SIZE);
+        private int outstanding;
+        private int unfinishedThreads;
+
+        private Session(DatagramChannel channel, Selector selector, String prefix, int threads, int requests) {
+            this.channel = channel;
+            this.selector = selector;
+            this.prefix = prefix;
+            this.requests = requests;
+            this.inFlight = new Request[threads];
+            this.nextRequest = new int[threads];
+            this.unfinishedThreads = threads;
+            for (int thread = 0; thread < threads; thread++) {
+                readyThreads.add(thread);
+            }
+        }
+
+        private void run() throws IOException {
+            SelectionKey key = channel.keyFor(selector);
+            while (unfinishedThreads > 0) {
+                if (Thread.interrupted()) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                fillWindow();
+                expireTimers();
+                flushSendQueue();
+                key.interestOps(sendQueue.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                Timer next = timers.peek();
+                selector.select(null == next ? 0 : Math.max(1, TimeUnit.NANOSECONDS.toMillis(next.deadline - System.nanoTime())));
+                selector.selectedKeys().clear();
+                if (key.isReadable()) {
+                    receiveAvailable();
+                }
+            }
+        }
+
+        private void fillWindow() {
+            while (outstanding < window && !readyThreads.isEmpty()) {
+                int thread = readyThreads.poll();
+                var request = new Request(thread, prefix + thread + "_" + nextRequest[thread]);
+                inFlight[thread] = request;
+                outstanding++;
+                sendQueue.add(request);
+            }
+        }
+
+        private void expireTimers() {
+            long now = System.nanoTime();
+            while (!timers.isEmpty() && timers.peek().deadline - now <= 0) {
+                Timer timer = timers.poll();
+                if (inFlight[timer.request.thread] == timer.request && timer.request.attempt == timer.attempt) {
+                    statistics.timedOut();
+                    sendQueue.add(timer.request);
+                }
+            }
+        }
+
+        private void flushSendQueue() {
+            Request request;
+            while (null != (request = sendQueue.peek())) {
+                try {
+                    request.data.rewind();
+                    if (channel.write(request.data) == 0) {
+                        return;
+                    }
+                } catch (IOException e) {
+                    System.err.println("Warning: " + e.getMessage());
+                }
+                sendQueue.poll();
+                long now = System.nanoTime();
+                if (request.attempt == 0) {
+                    request.firstSent = now;
+                }
+                statistics.sent(1);
+                timers.add(new Timer(request, ++request.attempt, now + estimator.timeout(request.attempt - 1)));
+            }
+        }
+
+        private void receiveAvailable() {
+            while (true) {
+                receiveBuffer.clear();
+                try {
+                    if (null == channel.receive(receiveBuffer)) {
+                        return;
+                    }
+                } catch (IOException e) {
+                    System.err.println("Warning: " + e.getMessage());
+                    return;
+                }
+                statistics.received();
+                receiveBuffer.flip();
+                String responseText = StandardCharsets.UTF_8.decode(receiveBuffer).toString();
+                Request request = match(responseText);
+                if (null != request) {
+                    System.out.println("Request: " + request.text);
+                    System.out.println("Response: " + responseText);
+                    complete(request);
+                }
+            }
+        }
+
+        /**
+         * Finds the outstanding request the response answers. The thread number is parsed
+         * from the response first, falling back to checking every outstanding request.
+         */
+        private Request match(String responseText) {
+            for (int from = responseText.indexOf(prefix); from >= 0; from = responseText.indexOf(prefix, from + 1)) {
+                int thread = parseNumber(responseText, from + prefix.length());
+                if (thread >= 0 && thread < inFlight.length && matches(inFlight[thread], responseText)) {
+                    return inFlight[thread];
+                }
+            }
+            for (Request request : inFlight) {
+                if (matches(request, responseText)) {
+                    return request;
+                }
+            }
+            return null;
+        }
+
+        private boolean matches(Request request, String responseText) {
+            return null != request && responseText.contains(request.text);
+        }
+
+        private int parseNumber(String text, int from) {
+            int number = 0;
+            int i = from;
+            while (i < text.length() && i - from < 9 && Character.isDigit(text.charAt(i))) {
+                number = number * 10 + Character.digit(text.charAt(i), 10);
+                i++;
+            }
+            return i == from ? -1 : number;
+        }
+
+        private void complete(Request request) {
+            long latency = System.nanoTime() - request.firstSent;
+            if (request.attempt == 1) {
+                estimator.sample(latency);
+            }
+            statistics.answered(latency, request.attempt == 1);
+            inFlight[request.thread] = null;
+            outstanding--;
+            if (++nextRequest[request.thread] < requests) {
+                readyThreads.add(request.thread);
+            } else {
+                unfinishedThreads--;
+            }
+        }
+    }
+
+    private static class Request {
+        private final int thread;
+        private final String text;
+        private final ByteBuffer data;
+        private int attempt;
+        private long firstSent;
+
+        private Request(int thread, String text) {
+            this.thread = thread;
+            this.text = text;
+            this.data = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Retransmission timer of a single attempt. Timers of answered requests and of
+     * already retransmitted attempts are dropped when they expire.
+     */
+    private static class Timer {
+        private final Request request;
+        private final int attempt;
+        private final long deadline;
+
+        private Timer(Request request, int attempt, long deadline) {
+            this.request = request;
+            this.attempt = attempt;
+            this.deadline = deadline;
+        }
+    }
+}
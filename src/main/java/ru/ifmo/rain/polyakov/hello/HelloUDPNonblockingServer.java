@@ -0,0 +1,277 @@
+package ru.ifmo.rain.polyakov.hello;
+
+import info.kgeorgiy.java.advanced.hello.HelloServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Non-blocking variant of {@link HelloUDPServer}.
+ * A single I/O thread selects on a {@link DatagramChannel} and hands requests to a fixed pool of workers.
+ * Every request is received into one of a fixed set of direct buffers and the response is built in place,
+ * so no memory is allocated per packet for the payload.
+ * While all buffers are in use the I/O thread stops reading, leaving the requests in the socket buffer.
+ * Every wakeup drains as many datagrams as there are free buffers,
+ * and batched requests are answered with a single batched response, see {@link HelloBatch}.
+ * @see HelloUDPServer
+ * @see HelloUDPClient
+ */
+public class HelloUDPNonblockingServer implements HelloServer {
+
+    private static final byte[] RESPONSE_PREFIX = "Hello, ".getBytes(StandardCharsets.UTF_8);
+    private static final int MAX_DATAGRAM_SIZE = 65507;
+    private static final int BUFFERS_PER_THREAD = 4;
+
+    private ExecutorService ioThread;
+    private ExecutorService workers;
+    private Selector selector;
+    private DatagramChannel channel;
+    private BlockingQueue<Packet> freePackets;
+    private final Queue<Packet> pendingPackets = new ConcurrentLinkedQueue<>();
+    private volatile boolean readPaused;
+    private final LongAdder sendErrors = new LongAdder();
+
+    public static void main(String[] args) {
+        if (null == args || args.length != 2) {
+            System.err.println("Command format:" +
+                    "\n\tHelloUDPNonblockingServer port threads");
+            return;
+        }
+        int port;
+        int threads;
+        try {
+            port = Integer.parseInt(args[0]);
+            threads = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) {
+            System.err.println("Error, wrong number format: " + e.getMessage());
+            return;
+        }
+        new HelloUDPNonblockingServer().start(port, threads);
+    }
+
+    /**
+     * @return number of responses dropped because they could not be sent.
+     */
+    public long getSendErrors() {
+        return sendErrors.sum();
+    }
+
+    @Override
+    public void start(int port, int threads) {
+        if (null != channel) {
+            System.err.println("You cannot restart server");
+            return;
+        }
+        System.out.println("Starting non-blocking server at port " + port + " with " + threads + " threads");
+        try {
+            selector = Selector.open();
+            channel = DatagramChannel.open();
+            channel.configureBlocking(false);
+            channel.bind(new InetSocketAddress(port));
+            channel.register(selector, SelectionKey.OP_READ);
+            int bufferSize = RESPONSE_PREFIX.length + Math.min(MAX_DATAGRAM_SIZE, channel.socket().getReceiveBufferSize());
+            int buffers = threads * BUFFERS_PER_THREAD;
+            freePackets = new ArrayBlockingQueue<>(buffers);
+            for (int i = 0; i < buffers; i++) {
+                freePackets.add(new Packet(ByteBuffer.allocateDirect(bufferSize)));
+            }
+            // in-flight requests are bounded by the number of buffers, so the queue never overflows
+            workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(buffers));
+        } catch (IOException e) {
+            System.err.println("Socket error: " + e.getMessage());
+            closeChannels();
+            selector = null;
+            channel = null;
+            return;
+        }
+        ioThread = Executors.newSingleThreadExecutor();
+        ioThread.submit(new SelectorRunnable());
+    }
+
+    @Override
+    public void close() {
+        if (null != ioThread) {
+            ioThread.shutdownNow();
+        }
+        if (null != workers) {
+            workers.shutdownNow();
+        }
+        try {
+            if (null != ioThread) {
+                ioThread.awaitTermination(10, TimeUnit.SECONDS);
+            }
+            if (null != workers) {
+                workers.awaitTermination(10, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException ignored) {
+        }
+        closeChannels();
+    }
+
+    /**
+     * Closes the selector and the channel, if they are open.
+     */
+    private void closeChannels() {
+        try {
+            if (null != selector) {
+                selector.close();
+            }
+            if (null != channel) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Warning (closing): " + e.getMessage());
+        }
+    }
+
+    private class SelectorRunnable implements Runnable {
+        @Override
+        public void run() {
+            SelectionKey key = channel.keyFor(selector);
+            while (channel.isOpen() && !Thread.interrupted()) {
+                try {
+                    key.interestOps(interestOps());
+                    selector.select();
+                    selector.selectedKeys().clear();
+                    if (!key.isValid()) {
+                        return;
+                    }
+                    if (key.isWritable()) {
+                        flushPending();
+                    }
+                    if (key.isReadable()) {
+                        receiveAvailable();
+                    }
+                } catch (IOException e) {
+                    System.err.println("Warning (selecting): " + e.getMessage());
+                }
+            }
+        }
+
+        private int interestOps() {
+            int ops = 0;
+            readPaused = true;
+            if (!freePackets.isEmpty()) {
+                readPaused = false;
+                ops |= SelectionKey.OP_READ;
+            }
+            if (!pendingPackets.isEmpty()) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+            return ops;
+        }
+
+        /**
+         * Sends pending responses until the socket buffer is full.
+         * A response failing to send is dropped, so it does not block the responses behind it.
+         */
+        private void flushPending() {
+            Packet packet;
+            while (null != (packet = pendingPackets.peek())) {
+                try {
+                    if (!packet.send()) {
+                        return;
+                    }
+                } catch (IOException e) {
+                    sendErrors.increment();
+                    System.err.println("Warning (sending): " + e.getMessage());
+                }
+                pendingPackets.poll();
+                packet.release();
+            }
+        }
+
+        private void receiveAvailable() throws IOException {
+            Packet packet;
+            while (null != (packet = freePackets.poll())) {
+                if (!packet.receive()) {
+                    freePackets.add(packet);
+                    return;
+                }
+                workers.execute(packet);
+            }
+        }
+    }
+
+    /**
+     * Reusable request holder. The request is received right after the space reserved for the response prefix,
+     * so the response is built by writing the prefix in front of it.
+     * Responses to batches are written into a separate buffer allocated on the first batch.
+     */
+    private class Packet implements Runnable {
+        private final ByteBuffer buffer;
+        private ByteBuffer batchBuffer;
+        private ByteBuffer response;
+        private SocketAddress address;
+
+        private Packet(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private boolean receive() throws IOException {
+            buffer.clear().position(RESPONSE_PREFIX.length);
+            address = channel.receive(buffer);
+            return null != address;
+        }
+
+        private boolean send() throws IOException {
+            return channel.send(response, address) != 0;
+        }
+
+        private void release() {
+            address = null;
+            freePackets.add(this);
+            if (readPaused) {
+                selector.wakeup();
+            }
+        }
+
+        @Override
+        public void run() {
+            buffer.flip().position(RESPONSE_PREFIX.length);
+            if (HelloBatch.isBatch(buffer)) {
+                if (null == batchBuffer) {
+                    batchBuffer = ByteBuffer.allocateDirect(buffer.capacity());
+                }
+                int length = HelloBatch.respond(buffer, batchBuffer, RESPONSE_PREFIX);
+                if (length < 0) {
+                    System.err.println("Warning (batch): malformed or too large batch");
+                    release();
+                    return;
+                }
+                response = batchBuffer.clear().limit(length);
+            } else {
+                buffer.position(0);
+                buffer.put(RESPONSE_PREFIX).position(0);
+                response = buffer;
+            }
+            try {
+                if (!send()) {
+                    pendingPackets.add(this);
+                    selector.wakeup();
+                    return;
+                }
+            } catch (IOException e) {
+                sendErrors.increment();
+                System.err.println("Warning (sending): " + e.getMessage());
+            }
+            release();
+        }
+    }
+}
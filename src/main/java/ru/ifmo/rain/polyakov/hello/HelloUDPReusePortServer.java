@@ -0,0 +1,167 @@
+package ru.ifmo.rain.polyakov.hello;
+
+import info.kgeorgiy.java.advanced.hello.HelloServer;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Variant of {@link HelloUDPServer} which opens one socket per thread, all bound to the same port
+ * with {@code SO_REUSEPORT}, so the kernel spreads incoming flows across them.
+ * Every socket is served by its own thread which receives, builds and sends the response itself.
+ * If the platform does not support {@code SO_REUSEPORT}, all threads share a single socket.
+ * Batched requests are answered with a single batched response, see {@link HelloBatch}.
+ * @see HelloUDPServer
+ * @see HelloUDPClient
+ */
+public class HelloUDPReusePortServer implements HelloServer {
+
+    private static final byte[] RESPONSE_PREFIX = "Hello, ".getBytes(StandardCharsets.UTF_8);
+    private static final int MAX_DATAGRAM_SIZE = 65507;
+
+    private ExecutorService socketThreads;
+    private final List<DatagramSocket> sockets = new ArrayList<>();
+
+    public static void main(String[] args) {
+        if (null == args || args.length != 2) {
+            System.err.println("Command format:" +
+                    "\n\tHelloUDPReusePortServer port threads");
+            return;
+        }
+        int port;
+        int threads;
+        try {
+            port = Integer.parseInt(args[0]);
+            threads = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) {
+            System.err.println("Error, wrong number format: " + e.getMessage());
+            return;
+        }
+        new HelloUDPReusePortServer().start(port, threads);
+    }
+
+    @Override
+    public void start(int port, int threads) {
+        if (!sockets.isEmpty()) {
+            System.err.println("You cannot restart server");
+            return;
+        }
+        System.out.println("Starting reuse-port server at port " + port + " with " + threads + " threads");
+        try {
+            DatagramSocket first = open(port);
+            boolean reusePort = first.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+            if (!reusePort) {
+                System.err.println("Warning: SO_REUSEPORT is not supported, sharing a single socket");
+            }
+            for (int i = 1; i < threads && reusePort; i++) {
+                open(port);
+            }
+        } catch (IOException e) {
+            System.err.println("Socket error: " + e.getMessage());
+            sockets.forEach(DatagramSocket::close);
+            sockets.clear();
+            return;
+        }
+        socketThreads = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            socketThreads.submit(new SocketRunnable(sockets.get(i % sockets.size())));
+        }
+    }
+
+    /**
+     * Opens a socket bound to the port with {@code SO_REUSEPORT} if supported and adds it to {@link #sockets}.
+     * The socket is closed if it cannot be bound.
+     *
+     * @param port port to bind to.
+     * @return opened socket.
+     * @throws IOException if the socket cannot be opened or bound.
+     */
+    private DatagramSocket open(int port) throws IOException {
+        DatagramSocket socket = new DatagramSocket(null);
+        try {
+            if (socket.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+                socket.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            socket.bind(new InetSocketAddress(port));
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        sockets.add(socket);
+        return socket;
+    }
+
+    @Override
+    public void close() {
+        if (null != socketThreads) {
+            socketThreads.shutdownNow();
+        }
+        sockets.forEach(DatagramSocket::close);
+        try {
+            if (null != socketThreads) {
+                socketThreads.awaitTermination(10, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    private static class SocketRunnable implements Runnable {
+        private final DatagramSocket socket;
+
+        private SocketRunnable(DatagramSocket socket) {
+            this.socket = socket;
+        }
+
+        @Override
+        public void run() {
+            int bufferSize;
+            try {
+                bufferSize = Math.min(MAX_DATAGRAM_SIZE, socket.getReceiveBufferSize());
+            } catch (SocketException e) {
+                System.err.println("Socket error: " + e.getMessage());
+                return;
+            }
+            // the request is received right after the prefix, so the response is built in place
+            byte[] buffer = new byte[RESPONSE_PREFIX.length + bufferSize];
+            System.arraycopy(RESPONSE_PREFIX, 0, buffer, 0, RESPONSE_PREFIX.length);
+            byte[] batchResponse = null;
+            var packet = new DatagramPacket(buffer, RESPONSE_PREFIX.length, bufferSize);
+            while (!socket.isClosed() && !Thread.interrupted()) {
+                try {
+                    packet.setData(buffer, RESPONSE_PREFIX.length, bufferSize);
+                    socket.receive(packet);
+                    if (HelloBatch.isBatch(buffer, RESPONSE_PREFIX.length, packet.getLength())) {
+                        if (null == batchResponse) {
+                            batchResponse = new byte[buffer.length];
+                        }
+                        int length = HelloBatch.respond(ByteBuffer.wrap(buffer, RESPONSE_PREFIX.length, packet.getLength()),
+                                ByteBuffer.wrap(batchResponse), RESPONSE_PREFIX);
+                        if (length < 0) {
+                            System.err.println("Warning (batch): malformed or too large batch");
+                            continue;
+                        }
+                        packet.setData(batchResponse, 0, length);
+                    } else {
+                        packet.setData(buffer, 0, RESPONSE_PREFIX.length + packet.getLength());
+                    }
+                    socket.send(packet);
+                } catch (IOException e) {
+                    if (!socket.isClosed()) {
+                        System.err.println("Warning: " + e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+}
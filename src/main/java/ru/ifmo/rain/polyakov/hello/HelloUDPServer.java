@@ -6,62 +6,128 @@ import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.SocketException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Accept and respond to requests sent by the Hello UDPClient class.
+ * Batched requests are answered with a single batched response, see {@link HelloBatch}.
+ * At most {@value #QUEUED_REQUESTS_PER_THREAD} requests per thread wait for a sending thread,
+ * requests received while the queue is full are dropped. Buffers are pooled for every request
+ * the server may hold at once, so an overloaded server does not allocate them.
+ * Runtime counters are available from {@link #getMetrics()} and over JMX,
+ * and may be printed periodically; warnings are rate limited.
  * @see HelloUDPClient
  */
 public class HelloUDPServer implements HelloServer {
 
+    private static final byte[] RESPONSE_PREFIX = "Hello, ".getBytes(StandardCharsets.UTF_8);
+    private static final int MAX_DATAGRAM_SIZE = 65507;
+    private static final int QUEUED_REQUESTS_PER_THREAD = 64;
+    private static final int WARNINGS_PER_SECOND = 10;
+
+    private final long metricsPeriod;
+    private final RateLimitedLog log = new RateLimitedLog(WARNINGS_PER_SECOND, 1, TimeUnit.SECONDS);
     private ExecutorService serverThread;
-    private ExecutorService sendPool;
+    private ThreadPoolExecutor sendPool;
+    private ScheduledExecutorService metricsThread;
     private DatagramSocket socket;
-    private int bufferSize;
+    private BufferPool bufferPool;
+    private final ServerMetrics metrics = new ServerMetrics(
+            () -> null == sendPool ? 0 : sendPool.getQueue().size(), log);
+
+    public HelloUDPServer() {
+        this(0);
+    }
+
+    /**
+     * @param metricsPeriod period of printing metrics to {@code System.out} in seconds, {@code 0} to disable.
+     */
+    public HelloUDPServer(long metricsPeriod) {
+        if (metricsPeriod < 0) {
+            throw new IllegalArgumentException("Metrics period must be non-negative: " + metricsPeriod);
+        }
+        this.metricsPeriod = metricsPeriod;
+    }
 
     public static void main(String[] args) {
-        if (null == args || args.length != 2) {
+        if (null == args || args.length < 2 || args.length > 3) {
             System.err.println("Command format:" +
-                    "\n\tHelloUDPServer port threads");
+                    "\n\tHelloUDPServer port threads [metricsPeriodSeconds]");
             return;
         }
         int port;
         int threads;
+        long metricsPeriod;
         try {
             port = Integer.parseInt(args[0]);
             threads = Integer.parseInt(args[1]);
+            metricsPeriod = args.length == 3 ? Long.parseLong(args[2]) : 0;
         } catch (NumberFormatException e) {
             System.err.println("Error, wrong number format: " + e.getMessage());
             return;
         }
-        new HelloUDPServer().start(port, threads);
+        new HelloUDPServer(metricsPeriod).start(port, threads);
+    }
+
+    /**
+     * @return runtime counters of the server.
+     */
+    public ServerMetrics getMetrics() {
+        return metrics;
     }
 
     @Override
     public void start(int port, int threads) {
-        if (null!=socket) {
+        if (null != socket) {
             System.err.println("You cannot restart server");
-        } else {
-            System.out.println("Starting server at port " + port + " with " + threads + " threads");
+            return;
         }
-        serverThread = Executors.newSingleThreadExecutor();
-        sendPool = Executors.newFixedThreadPool(threads);
+        System.out.println("Starting server at port " + port + " with " + threads + " threads");
+        int queued = threads * QUEUED_REQUESTS_PER_THREAD;
         try {
             socket = new DatagramSocket(port);
-            bufferSize = socket.getReceiveBufferSize();
+            int bufferSize = Math.min(MAX_DATAGRAM_SIZE, socket.getReceiveBufferSize());
+            // the receiver holds one buffer, and every sending thread a request and maybe a batch response
+            bufferPool = new BufferPool(queued + 2 * threads + 1, RESPONSE_PREFIX.length + bufferSize);
         } catch (SocketException e) {
             System.err.println("Socket error: " + e.getMessage());
+            if (null != socket) {
+                socket.close();
+                socket = null;
+            }
+            return;
+        }
+        serverThread = Executors.newSingleThreadExecutor();
+        sendPool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queued));
+        metrics.register(getClass().getSimpleName(), port);
+        if (metricsPeriod > 0) {
+            metricsThread = Executors.newSingleThreadScheduledExecutor();
+            metricsThread.scheduleAtFixedRate(() -> System.out.println(metrics),
+                    metricsPeriod, metricsPeriod, TimeUnit.SECONDS);
         }
         serverThread.submit(new ServerRunnable());
     }
 
     @Override
     public void close() {
+        if (null == serverThread) {
+            return;
+        }
         serverThread.shutdownNow();
         sendPool.shutdownNow();
+        if (null != metricsThread) {
+            metricsThread.shutdownNow();
+        }
+        metrics.unregister();
         try {
             serverThread.awaitTermination(10, TimeUnit.SECONDS);
             sendPool.awaitTermination(10, TimeUnit.SECONDS);
@@ -74,25 +140,62 @@ public class HelloUDPServer implements HelloServer {
         @Override
         public void run() {
             while (!socket.isClosed() && !Thread.interrupted()) {
-                var receivePacket = new DatagramPacket(new byte[bufferSize], bufferSize);
+                // the request is received right after the prefix, so the response is built in place
+                byte[] buffer = bufferPool.acquire();
+                var packet = new DatagramPacket(buffer, RESPONSE_PREFIX.length, buffer.length - RESPONSE_PREFIX.length);
                 try {
-                    socket.receive(receivePacket);
+                    socket.receive(packet);
                 } catch (IOException e) {
-                    System.err.println("Warning (receiving): " + e.getMessage());
+                    bufferPool.release(buffer);
+                    if (!socket.isClosed()) {
+                        metrics.receiveFailed();
+                        log.warn("receiving", e.getMessage());
+                    }
                     continue;
                 }
-                sendPool.submit(() -> {
-                    String receiveText = new String(receivePacket.getData(), receivePacket.getOffset(),
-                            receivePacket.getLength(), StandardCharsets.UTF_8);
-                    String requestText = "Hello, " + receiveText;
-                    var sendPacket = new DatagramPacket(requestText.getBytes(StandardCharsets.UTF_8),
-                            requestText.length(), receivePacket.getSocketAddress());
-                    try {
-                        socket.send(sendPacket);
-                    } catch (IOException e) {
-                        System.err.println("Warning (sending): " + e.getMessage());
+                long receivedAt = System.nanoTime();
+                metrics.received(packet.getLength());
+                try {
+                    sendPool.execute(() -> respond(buffer, packet, receivedAt));
+                } catch (RejectedExecutionException e) {
+                    bufferPool.release(buffer);
+                    if (!sendPool.isShutdown()) {
+                        metrics.dropped();
+                        log.warn("queue", "all sending threads are busy, request dropped");
                     }
-                });
+                }
+            }
+        }
+
+        private void respond(byte[] buffer, DatagramPacket packet, long receivedAt) {
+            byte[] batchResponse = null;
+            if (HelloBatch.isBatch(buffer, RESPONSE_PREFIX.length, packet.getLength())) {
+                batchResponse = bufferPool.acquire();
+                int length = HelloBatch.respond(ByteBuffer.wrap(buffer, RESPONSE_PREFIX.length, packet.getLength()),
+                        ByteBuffer.wrap(batchResponse), RESPONSE_PREFIX);
+                if (length < 0) {
+                    metrics.dropped();
+                    log.warn("batch", "malformed or too large batch");
+                    bufferPool.release(batchResponse);
+                    bufferPool.release(buffer);
+                    return;
+                }
+                packet.setData(batchResponse, 0, length);
+            } else {
+                System.arraycopy(RESPONSE_PREFIX, 0, buffer, 0, RESPONSE_PREFIX.length);
+                packet.setData(buffer, 0, RESPONSE_PREFIX.length + packet.getLength());
+            }
+            try {
+                socket.send(packet);
+                metrics.sent(packet.getLength(), receivedAt);
+            } catch (IOException e) {
+                metrics.sendFailed();
+                log.warn("sending", e.getMessage());
+            } finally {
+                bufferPool.release(buffer);
+                if (null != batchResponse) {
+                    bufferPool.release(batchResponse);
+                }
             }
         }
     }
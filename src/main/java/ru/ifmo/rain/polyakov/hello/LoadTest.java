@@ -0,0 +1,68 @@
+package ru.ifmo.rain.polyakov.hello;
+
+import info.kgeorgiy.java.advanced.hello.HelloServer;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loopback load test of the Hello servers, used as a regression benchmark for server changes.
+ * Runs closed-loop {@link HelloLoadGenerator} against the server with 1, 2, 4, ... threads
+ * and prints the reached throughput and latency percentiles
+ * together with the garbage collections performed during the run.
+ * {@link HelloUDPReusePortServer} is tested by default.
+ */
+public class LoadTest {
+
+    private static final int PORT = 28810;
+
+    public static void main(String[] args) throws ReflectiveOperationException, IOException {
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        int outstanding = 64;
+        int seconds = 5;
+        String serverClass = HelloUDPReusePortServer.class.getName();
+        try {
+            if (args.length > 0) {
+                maxThreads = Integer.parseInt(args[0]);
+            }
+            if (args.length > 1) {
+                outstanding = Integer.parseInt(args[1]);
+            }
+            if (args.length > 2) {
+                seconds = Integer.parseInt(args[2]);
+            }
+            if (args.length > 3) {
+                serverClass = args[3];
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Command format:" +
+                    "\n\tLoadTest [maxThreads [outstandingRequests [seconds [serverClass]]]]");
+            return;
+        }
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            try (HelloServer server = (HelloServer) Class.forName(serverClass).getConstructor().newInstance()) {
+                server.start(PORT + threads, threads);
+                long collections = -gcCount();
+                long collectionTime = -gcTime();
+                HelloLoadGenerator.Report report = new HelloLoadGenerator("localhost", PORT + threads)
+                        .closedLoop(outstanding, seconds, TimeUnit.SECONDS);
+                collections += gcCount();
+                collectionTime += gcTime();
+                System.out.printf("%d threads: %d collections in %d ms%n%s%n", threads, collections, collectionTime, report);
+            }
+        }
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long gcTime() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+}
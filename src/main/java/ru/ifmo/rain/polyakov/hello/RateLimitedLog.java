@@ -0,0 +1,46 @@
+package ru.ifmo.rain.polyakov.hello;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Warning log printing at most {@code limit} warnings per period to {@code System.err}.
+ * Warnings over the limit are only counted, and their number is printed with the first warning of the next period,
+ * so an error storm costs a counter increment per error instead of a synchronized console write.
+ */
+class RateLimitedLog {
+    private final int limit;
+    private final long period;
+    private final AtomicLong periodStart = new AtomicLong(System.nanoTime());
+    private final AtomicLong printed = new AtomicLong();
+    private final LongAdder suppressed = new LongAdder();
+    private final AtomicLong reportedSuppressed = new AtomicLong();
+
+    RateLimitedLog(int limit, long period, TimeUnit unit) {
+        this.limit = limit;
+        this.period = unit.toNanos(period);
+    }
+
+    void warn(String context, String message) {
+        long now = System.nanoTime();
+        long start = periodStart.get();
+        if (now - start >= period && periodStart.compareAndSet(start, now)) {
+            printed.set(0);
+            long total = suppressed.sum();
+            long skipped = total - reportedSuppressed.getAndSet(total);
+            if (skipped > 0) {
+                System.err.println("Warning (" + context + "): " + skipped + " warnings suppressed");
+            }
+        }
+        if (printed.incrementAndGet() <= limit) {
+            System.err.println("Warning (" + context + "): " + message);
+        } else {
+            suppressed.increment();
+        }
+    }
+
+    long getSuppressed() {
+        return suppressed.sum();
+    }
+}
@@ -0,0 +1,54 @@
+package ru.ifmo.rain.polyakov.hello;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retransmission timeout estimation by Jacobson/Karels, as specified in RFC 6298.
+ * The timeout of a request is doubled for every timeout it already had, up to a cap.
+ * Round-trip times of retransmitted requests are ambiguous and must not be sampled (Karn's algorithm).
+ */
+class RttEstimator {
+    private static final long INITIAL_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(1000);
+    private static final long MIN_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(200);
+    private static final long MAX_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(2000);
+    private static final long CLOCK_GRANULARITY = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int MAX_BACKOFF_SHIFT = 16;
+
+    private boolean sampled;
+    private long smoothedRtt;
+    private long rttVariation;
+    private long timeout = INITIAL_TIMEOUT;
+
+    /**
+     * Updates estimation with a round-trip time of a request answered on the first attempt.
+     *
+     * @param rtt round-trip time in nanoseconds.
+     */
+    synchronized void sample(long rtt) {
+        if (!sampled) {
+            sampled = true;
+            smoothedRtt = rtt;
+            rttVariation = rtt / 2;
+        } else {
+            rttVariation = rttVariation - rttVariation / 4 + Math.abs(smoothedRtt - rtt) / 4;
+            smoothedRtt = smoothedRtt - smoothedRtt / 8 + rtt / 8;
+        }
+        timeout = Math.min(MAX_TIMEOUT, Math.max(MIN_TIMEOUT, smoothedRtt + Math.max(CLOCK_GRANULARITY, 4 * rttVariation)));
+    }
+
+    /**
+     * @param timeouts number of timeouts the request already had.
+     * @return timeout of the next attempt in nanoseconds.
+     */
+    synchronized long timeout(int timeouts) {
+        return Math.min(MAX_TIMEOUT, timeout << Math.min(timeouts, MAX_BACKOFF_SHIFT));
+    }
+
+    /**
+     * @param timeouts number of timeouts the request already had.
+     * @return timeout of the next attempt in whole milliseconds, at least one.
+     */
+    int timeoutMillis(int timeouts) {
+        return (int) Math.max(1, TimeUnit.NANOSECONDS.toMillis(timeout(timeouts) + CLOCK_GRANULARITY - 1));
+    }
+}
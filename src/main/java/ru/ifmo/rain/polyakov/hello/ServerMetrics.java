@@ -0,0 +1,169 @@
+package ru.ifmo.rain.polyakov.hello;
+
+import ru.ifmo.rain.polyakov.util.LatencyHistogram;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Runtime counters of a Hello server.
+ * Counters are {@link LongAdder}s, so updating them from many threads does not contend,
+ * and the processing latency covers the time from receiving a request to sending its response.
+ * Metrics may be registered as an MBean under {@code ru.ifmo.rain.polyakov.hello:type=<server>,port=<port>}.
+ */
+public class ServerMetrics implements ServerMetricsMBean {
+    private final LongAdder packetsReceived = new LongAdder();
+    private final LongAdder packetsSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder drops = new LongAdder();
+    private final LongAdder receiveErrors = new LongAdder();
+    private final LongAdder sendErrors = new LongAdder();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final IntSupplier queueDepth;
+    private final RateLimitedLog log;
+    private ObjectName objectName;
+
+    ServerMetrics(IntSupplier queueDepth, RateLimitedLog log) {
+        this.queueDepth = queueDepth;
+        this.log = log;
+    }
+
+    void received(int bytes) {
+        packetsReceived.increment();
+        bytesReceived.add(bytes);
+    }
+
+    void sent(int bytes, long receivedAt) {
+        packetsSent.increment();
+        bytesSent.add(bytes);
+        latencies.record(System.nanoTime() - receivedAt);
+    }
+
+    void dropped() {
+        drops.increment();
+    }
+
+    void receiveFailed() {
+        receiveErrors.increment();
+    }
+
+    void sendFailed() {
+        sendErrors.increment();
+    }
+
+    /**
+     * Registers metrics in the platform MBean server, warning on failure.
+     *
+     * @param type server type used in the object name.
+     * @param port server port used in the object name.
+     */
+    synchronized void register(String type, int port) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("ru.ifmo.rain.polyakov.hello:type=" + type + ",port=" + port);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+            objectName = name;
+        } catch (JMException e) {
+            System.err.println("Warning (metrics): " + e.getMessage());
+        }
+    }
+
+    synchronized void unregister() {
+        if (null == objectName) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            System.err.println("Warning (metrics): " + e.getMessage());
+        }
+        objectName = null;
+    }
+
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    @Override
+    public long getPacketsReceived() {
+        return packetsReceived.sum();
+    }
+
+    @Override
+    public long getPacketsSent() {
+        return packetsSent.sum();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    @Override
+    public long getDrops() {
+        return drops.sum();
+    }
+
+    @Override
+    public long getReceiveErrors() {
+        return receiveErrors.sum();
+    }
+
+    @Override
+    public long getSendErrors() {
+        return sendErrors.sum();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.getAsInt();
+    }
+
+    @Override
+    public long getSuppressedWarnings() {
+        return log.getSuppressed();
+    }
+
+    @Override
+    public double getMeanLatencyMicros() {
+        return latencies.getMean() / 1e3;
+    }
+
+    @Override
+    public long getLatencyMicrosP50() {
+        return TimeUnit.NANOSECONDS.toMicros(latencies.getPercentile(50));
+    }
+
+    @Override
+    public long getLatencyMicrosP99() {
+        return TimeUnit.NANOSECONDS.toMicros(latencies.getPercentile(99));
+    }
+
+    @Override
+    public long getMaxLatencyMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(latencies.getMax());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("received: %d (%d bytes), sent: %d (%d bytes), drops: %d, errors receive/send: %d/%d, "
+                        + "queue: %d, suppressed warnings: %d%nprocessing us p50/p99/max: %d/%d/%d",
+                getPacketsReceived(), getBytesReceived(), getPacketsSent(), getBytesSent(), getDrops(),
+                getReceiveErrors(), getSendErrors(), getQueueDepth(), getSuppressedWarnings(),
+                getLatencyMicrosP50(), getLatencyMicrosP99(), getMaxLatencyMicros());
+    }
+}
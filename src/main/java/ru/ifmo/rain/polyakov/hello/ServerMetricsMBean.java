@@ -0,0 +1,35 @@
+package ru.ifmo.rain.polyakov.hello;
+
+/**
+ * JMX view of {@link ServerMetrics}. Latencies are in microseconds.
+ */
+public interface ServerMetricsMBean {
+    long getPacketsReceived();
+
+    long getPacketsSent();
+
+    long getBytesReceived();
+
+    long getBytesSent();
+
+    /**
+     * @return requests dropped because the send queue was full or the batch was malformed.
+     */
+    long getDrops();
+
+    long getReceiveErrors();
+
+    long getSendErrors();
+
+    int getQueueDepth();
+
+    long getSuppressedWarnings();
+
+    double getMeanLatencyMicros();
+
+    long getLatencyMicrosP50();
+
+    long getLatencyMicrosP99();
+
+    long getMaxLatencyMicros();
+}
@@ -5,7 +5,13 @@ import info.kgeorgiy.java.advanced.hello.Tester;
 public class Test {
     public static void main(String[] args) {
         Tester.main("client-i18n", HelloUDPClient.class.getName());
+        System.out.println("|...starting non-blocking client-i18n test...|");
+        Tester.main("client-i18n", HelloUDPNonblockingClient.class.getName());
         System.out.println("|...starting server-i18n test...|");
         Tester.main("server-i18n", HelloUDPServer.class.getName());
+        System.out.println("|...starting non-blocking server-i18n test...|");
+        Tester.main("server-i18n", HelloUDPNonblockingServer.class.getName());
+        System.out.println("|...starting reuse-port server-i18n test...|");
+        Tester.main("server-i18n", HelloUDPReusePortServer.class.getName());
     }
 }
@@ -0,0 +1,380 @@
+package ru.ifmo.rain.polyakov.implementor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Minimal class file writer for the implementations generated by {@link Implementor}.
+ * Supports only what the implementations need: constructors delegating to the superclass,
+ * methods returning default values and bridges delegating to them.
+ * No method has branches, so no stack map frames are required.
+ */
+class ClassFileWriter {
+    /**
+     * Class file version, Java 8
+     */
+    private static final int VERSION = 52;
+
+    private static final int ACC_SUPER = 0x0020;
+    private static final int ACC_BRIDGE = 0x0040;
+    private static final int ACC_SYNTHETIC = 0x1000;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private static final int ACONST_NULL = 0x01;
+    private static final int ICONST_0 = 0x03;
+    private static final int LCONST_0 = 0x09;
+    private static final int FCONST_0 = 0x0b;
+    private static final int DCONST_0 = 0x0e;
+    private static final int ILOAD = 0x15;
+    private static final int LLOAD = 0x16;
+    private static final int FLOAD = 0x17;
+    private static final int DLOAD = 0x18;
+    private static final int ALOAD = 0x19;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int IRETURN = 0xac;
+    private static final int LRETURN = 0xad;
+    private static final int FRETURN = 0xae;
+    private static final int DRETURN = 0xaf;
+    private static final int ARETURN = 0xb0;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private final Map<String, Integer> constants = new HashMap<>();
+    private int poolSize = 1;
+
+    private final ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+    private final DataOutputStream methods = new DataOutputStream(methodBytes);
+    private int methodCount;
+
+    private final String name;
+    private final int thisClass;
+    private final int superClass;
+    private final int[] interfaces;
+
+    /**
+     * Creates writer of a public class
+     *
+     * @param name       binary name of the class
+     * @param superName  binary name of the superclass
+     * @param interfaces binary names of implemented interfaces
+     */
+    ClassFileWriter(String name, String superName, String... interfaces) {
+        this.name = name;
+        this.thisClass = classConstant(name);
+        this.superClass = classConstant(superName);
+        this.interfaces = new int[interfaces.length];
+        for (int i = 0; i < interfaces.length; i++) {
+            this.interfaces[i] = classConstant(interfaces[i]);
+        }
+    }
+
+    /**
+     * Adds constructor passing all its arguments to the superclass constructor with the same parameters
+     *
+     * @param modifiers      access modifiers
+     * @param superName      binary name of the superclass
+     * @param parameterTypes parameter types
+     * @param exceptionTypes declared exception types
+     */
+    void addConstructor(int modifiers, String superName, Class<?>[] parameterTypes, Class<?>[] exceptionTypes) {
+        String descriptor = methodDescriptor(parameterTypes, void.class);
+        int target = methodConstant(superName, "<init>", descriptor);
+        Code code = new Code(parameterTypes);
+        code.op(ALOAD_0);
+        code.loadArguments(parameterTypes);
+        code.op(INVOKESPECIAL).u2(target);
+        code.op(RETURN);
+        addMethod(modifiers, "<init>", descriptor, code.build(1 + code.argumentSlots), exceptionTypes);
+    }
+
+    /**
+     * Adds method returning default value of its return type
+     *
+     * @param modifiers      access modifiers
+     * @param name           method name
+     * @param parameterTypes parameter types
+     * @param returnType     return type
+     */
+    void addDefaultMethod(int modifiers, String name, Class<?>[] parameterTypes, Class<?> returnType) {
+        Code code = new Code(parameterTypes);
+        code.op(defaultValue(returnType));
+        code.op(returnOp(returnType));
+        addMethod(modifiers, name, methodDescriptor(parameterTypes, returnType), code.build(slots(returnType)), new Class<?>[0]);
+    }
+
+    /**
+     * Adds bridge method calling the method with the same name and parameters of this class
+     *
+     * @param name           method name
+     * @param parameterTypes parameter types
+     * @param returnType     return type of the bridge
+     * @param targetType     return type of the called method
+     */
+    void addBridge(String name, Class<?>[] parameterTypes, Class<?> returnType, Class<?> targetType) {
+        int target = methodConstant(this.name, name, methodDescriptor(parameterTypes, targetType));
+        Code code = new Code(parameterTypes);
+        code.op(ALOAD_0);
+        code.loadArguments(parameterTypes);
+        code.op(INVOKEVIRTUAL).u2(target);
+        code.op(returnOp(returnType));
+        int maxStack = Math.max(1 + code.argumentSlots, slots(targetType));
+        addMethod(Modifier.PUBLIC | ACC_BRIDGE | ACC_SYNTHETIC, name, methodDescriptor(parameterTypes, returnType),
+                code.build(maxStack), new Class<?>[0]);
+    }
+
+    /**
+     * @return class file bytes
+     */
+    byte[] toByteArray() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(poolBytes.size() + methodBytes.size() + 64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(poolSize);
+            poolBytes.writeTo(out);
+            out.writeShort(Modifier.PUBLIC | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(interfaces.length);
+            for (int i : interfaces) {
+                out.writeShort(i);
+            }
+            out.writeShort(0);
+            out.writeShort(methodCount);
+            methodBytes.writeTo(out);
+            out.writeShort(0);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void addMethod(int modifiers, String name, String descriptor, byte[] code, Class<?>[] exceptionTypes) {
+        try {
+            int[] exceptions = new int[exceptionTypes.length];
+            for (int i = 0; i < exceptions.length; i++) {
+                exceptions[i] = classConstant(exceptionTypes[i].getName());
+            }
+            methods.writeShort(modifiers);
+            methods.writeShort(utf8Constant(name));
+            methods.writeShort(utf8Constant(descriptor));
+            methods.writeShort(exceptions.length > 0 ? 2 : 1);
+            methods.writeShort(utf8Constant("Code"));
+            methods.writeInt(code.length);
+            methods.write(code);
+            if (exceptions.length > 0) {
+                methods.writeShort(utf8Constant("Exceptions"));
+                methods.writeInt(2 + 2 * exceptions.length);
+                methods.writeShort(exceptions.length);
+                for (int exception : exceptions) {
+                    methods.writeShort(exception);
+                }
+            }
+            methodCount++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int utf8Constant(String value) {
+        Integer index = constants.get(value);
+        if (null != index) {
+            return index;
+        }
+        try {
+            pool.writeByte(CONSTANT_UTF8);
+            pool.writeUTF(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        constants.put(value, poolSize);
+        return poolSize++;
+    }
+
+    private int classConstant(String binaryName) {
+        String internalName = binaryName.replace('.', '/');
+        return constant("Class " + internalName, CONSTANT_CLASS, utf8Constant(internalName));
+    }
+
+    private int methodConstant(String owner, String name, String descriptor) {
+        int nameAndType = constant("NameAndType " + name + descriptor, CONSTANT_NAME_AND_TYPE,
+                utf8Constant(name), utf8Constant(descriptor));
+        return constant("Methodref " + owner + "." + name + descriptor, CONSTANT_METHODREF,
+                classConstant(owner), nameAndType);
+    }
+
+    /**
+     * Adds constant referring to other constants, keys contain a space which no UTF-8 constant of a class file has
+     */
+    private int constant(String key, int tag, int... references) {
+        Integer index = constants.get(key);
+        if (null != index) {
+            return index;
+        }
+        try {
+            pool.writeByte(tag);
+            for (int reference : references) {
+                pool.writeShort(reference);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        constants.put(key, poolSize);
+        return poolSize++;
+    }
+
+    /**
+     * Generates method descriptor
+     *
+     * @param parameterTypes parameter types
+     * @param returnType     return type
+     * @return method descriptor
+     */
+    static String methodDescriptor(Class<?>[] parameterTypes, Class<?> returnType) {
+        StringBuilder descriptor = new StringBuilder("(");
+        for (Class<?> type : parameterTypes) {
+            descriptor.append(descriptor(type));
+        }
+        return descriptor.append(")").append(descriptor(returnType)).toString();
+    }
+
+    private static String descriptor(Class<?> type) {
+        if (type.isArray()) {
+            return type.getName().replace('.', '/');
+        }
+        if (type == void.class) {
+            return "V";
+        } else if (type == boolean.class) {
+            return "Z";
+        } else if (type == byte.class) {
+            return "B";
+        } else if (type == char.class) {
+            return "C";
+        } else if (type == short.class) {
+            return "S";
+        } else if (type == int.class) {
+            return "I";
+        } else if (type == long.class) {
+            return "J";
+        } else if (type == float.class) {
+            return "F";
+        } else if (type == double.class) {
+            return "D";
+        }
+        return "L" + type.getName().replace('.', '/') + ";";
+    }
+
+    private static int slots(Class<?> type) {
+        return type == void.class ? 0 : type == long.class || type == double.class ? 2 : 1;
+    }
+
+    private static int defaultValue(Class<?> type) {
+        if (type == void.class) {
+            return -1;
+        } else if (type == long.class) {
+            return LCONST_0;
+        } else if (type == float.class) {
+            return FCONST_0;
+        } else if (type == double.class) {
+            return DCONST_0;
+        } else if (type.isPrimitive()) {
+            return ICONST_0;
+        }
+        return ACONST_NULL;
+    }
+
+    private static int loadOp(Class<?> type) {
+        if (type == long.class) {
+            return LLOAD;
+        } else if (type == float.class) {
+            return FLOAD;
+        } else if (type == double.class) {
+            return DLOAD;
+        } else if (type.isPrimitive()) {
+            return ILOAD;
+        }
+        return ALOAD;
+    }
+
+    private static int returnOp(Class<?> type) {
+        if (type == void.class) {
+            return RETURN;
+        } else if (type == long.class) {
+            return LRETURN;
+        } else if (type == float.class) {
+            return FRETURN;
+        } else if (type == double.class) {
+            return DRETURN;
+        } else if (type.isPrimitive()) {
+            return IRETURN;
+        }
+        return ARETURN;
+    }
+
+    /**
+     * Code attribute of a single method with instance receiver
+     */
+    private static class Code {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final int argumentSlots;
+
+        private Code(Class<?>[] parameterTypes) {
+            int slots = 0;
+            for (Class<?> type : parameterTypes) {
+                slots += slots(type);
+            }
+            this.argumentSlots = slots;
+        }
+
+        private Code op(int opcode) {
+            if (opcode >= 0) {
+                bytes.write(opcode);
+            }
+            return this;
+        }
+
+        private Code u2(int value) {
+            bytes.write(value >>> 8);
+            bytes.write(value);
+            return this;
+        }
+
+        private void loadArguments(Class<?>[] parameterTypes) {
+            int slot = 1;
+            for (Class<?> type : parameterTypes) {
+                op(loadOp(type)).op(slot);
+                slot += slots(type);
+            }
+        }
+
+        private byte[] build(int maxStack) {
+            ByteArrayOutputStream attribute = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(attribute);
+            try {
+                out.writeShort(maxStack);
+                out.writeShort(1 + argumentSlots);
+                out.writeInt(bytes.size());
+                bytes.writeTo(out);
+                out.writeShort(0);
+                out.writeShort(0);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return attribute.toByteArray();
+        }
+    }
+}
@@ -4,22 +4,29 @@ import info.kgeorgiy.java.advanced.implementor.ImplerException;
 import info.kgeorgiy.java.advanced.implementor.JarImpler;
 
 import java.util.*;
+import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
 import javax.tools.ToolProvider;
 import java.io.*;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-
-
-import static java.nio.file.Files.getLastModifiedTime;
-import static java.nio.file.Files.newInputStream;
+import java.security.CodeSource;
 
 public class Implementor implements JarImpler {
     /**
@@ -33,24 +40,64 @@ public class Implementor implements JarImpler {
     private Path filePath;
 
     /**
-     * Implementation of the token
+     * Output of the implementation of the token
      */
-    private StringBuilder fileImpl;
+    private Writer out;
+
+    /**
+     * Reusable builder of the part of the implementation being generated
+     */
+    private final StringBuilder line = new StringBuilder();
+
+    /**
+     * Reusable buffer for writing {@link #line}
+     */
+    private char[] chars = new char[1024];
 
     /**
      * Primitives default
      */
     private final Map<String, String> primitives = new HashMap<>();
 
+    /**
+     * Whether jar classes are generated directly as bytecode instead of compiling generated sources
+     */
+    private final boolean bytecode;
+
+    /**
+     * Loaded implementations by tokens, stored with the tokens themselves, so they unload together
+     */
+    private final ClassValue<Implementation> implementations = new ClassValue<>() {
+        @Override
+        protected Implementation computeValue(Class<?> type) {
+            return new Implementation(type, bytecode);
+        }
+    };
+
+    /**
+     * Creates implementor compiling generated sources for jars
+     */
+    public Implementor() {
+        this(false);
+    }
+
+    /**
+     * Creates implementor
+     *
+     * @param bytecode whether jar classes are generated directly as bytecode, bypassing the compiler
+     */
+    public Implementor(boolean bytecode) {
+        this.bytecode = bytecode;
+    }
+
     /**
      * Initial Implementor method.
      * Validates user input, etc.
      *
      * @param token {@link Class} class type token.
-     * @param root  {@link Path} root directory.
      * @throws ImplerException covers possibility of the realization generation for a specific token.
      */
-    private void init(Class<?> token, Path root) throws ImplerException {
+    private void init(Class<?> token) throws ImplerException {
         if (token == Enum.class || token.isEnum() || token.isArray() || Modifier.isFinal(token.getModifiers())) {
             throw new ImplerException("Not implementable class!");
         }
@@ -64,10 +111,6 @@ public class Implementor implements JarImpler {
         }
 
         this.token = token;
-        fileImpl = new StringBuilder();
-
-        String filename = token.getName().replace(".", "/");
-        filePath = Paths.get(root + "/" + filename + "Impl.java");
 
         primitives.put("int", "0");
         primitives.put("char", "0");
@@ -78,196 +121,232 @@ public class Implementor implements JarImpler {
         primitives.put("float", "0.0f");
         primitives.put("boolean", "false");
         primitives.put("void", "");
-
-        try {
-            Files.createDirectories(filePath.getParent());
-        } catch (IOException e) {
-            System.out.println("IOException " + e.getMessage());
-        }
     }
 
     /**
-     * Generates set of methods for the implementation
-     *
-     * @return {@link Set} of methods to implement
+     * Abstract methods left unimplemented by a class or interface, ordered by signature keys.
+     * Computed once per class, so ancestors shared by many tokens are resolved once.
      */
-    private Set<Method> getMethodsToImplement() {
-        Set<Method> methods = new TreeSet<>(DEFAULT_METHOD_COMPARATOR);
-
-        Set<Method> implementedMethods = new TreeSet<>(DEFAULT_METHOD_COMPARATOR);
-
-        appendOwnMethods(methods, implementedMethods);
-        appendInterfaces(methods);
-        appendSuperclassesMethods(methods, implementedMethods);
+    private static final ClassValue<Map<String, Method>> ABSTRACT_METHODS = new ClassValue<>() {
+        @Override
+        protected Map<String, Method> computeValue(Class<?> type) {
+            Map<String, Method> methods = new HashMap<>();
+            if (type.getSuperclass() != null) {
+                ABSTRACT_METHODS.get(type.getSuperclass()).forEach((key, m) -> merge(methods, key, m));
+            }
+            for (Class<?> superInterface : type.getInterfaces()) {
+                ABSTRACT_METHODS.get(superInterface).forEach((key, m) -> merge(methods, key, m));
+            }
+            if (!type.isInterface()) {
+                methods.keySet().removeAll(IMPLEMENTED_METHODS.get(type));
+            }
+            // own abstract methods override the inherited ones
+            for (Method m : type.getDeclaredMethods()) {
+                if (Modifier.isAbstract(m.getModifiers()) && !m.isBridge()) {
+                    methods.put(getSignature(m), m);
+                }
+            }
+            return Collections.unmodifiableSortedMap(new TreeMap<>(methods));
+        }
+    };
 
-        methods.removeAll(implementedMethods);
-        return methods;
-    }
+    /**
+     * Signature keys of instance methods implemented by a class or its superclasses.
+     */
+    private static final ClassValue<Set<String>> IMPLEMENTED_METHODS = new ClassValue<>() {
+        @Override
+        protected Set<String> computeValue(Class<?> type) {
+            Set<String> methods = type.getSuperclass() == null
+                    ? new HashSet<>()
+                    : new HashSet<>(IMPLEMENTED_METHODS.get(type.getSuperclass()));
+            for (Method m : type.getDeclaredMethods()) {
+                int modifiers = m.getModifiers();
+                if (!Modifier.isAbstract(modifiers) && !Modifier.isStatic(modifiers)
+                        && !Modifier.isPrivate(modifiers) && !m.isBridge()) {
+                    methods.add(getSignature(m));
+                }
+            }
+            return Collections.unmodifiableSet(methods);
+        }
+    };
 
     /**
-     * Generates set of methods to implement and set of methods which are already implemented in class itself
-     * And fills it in corresponding input sets
+     * Generates signature key of the method: name and binary names of parameter types
      *
-     * @param methods            {@link Set} of methods to implement.
-     * @param implementedMethods {@link Set} of methods which are already implemented
+     * @param m {@link Method}
+     * @return {@link String} signature key
      */
-    private void appendOwnMethods(Set<Method> methods, Set<Method> implementedMethods) {
-        runAndDistributeMethods(token.getDeclaredMethods(), methods, implementedMethods);
+    private static String getSignature(Method m) {
+        StringBuilder signature = new StringBuilder(m.getName()).append('(');
+        for (Class<?> type : m.getParameterTypes()) {
+            signature.append(type.getName()).append(',');
+        }
+        return signature.append(')').toString();
     }
 
     /**
-     * Generates set of methods to implement and set of methods which are already implemented in superclasses of token
-     * And fills it in corresponding input sets
+     * Adds inherited abstract method, keeping the one with the most specific return type
+     * if several methods with the same signature are inherited
      *
-     * @param methods            {@link Set} of methods to implement.
-     * @param implementedMethods {@link Set} of methods which are already implemented
+     * @param methods {@link Map} of methods by signature keys
+     * @param key     signature key of the method
+     * @param m       inherited {@link Method}
      */
-    private void appendSuperclassesMethods(Set<Method> methods, Set<Method> implementedMethods) {
-        Class superClass = token.getSuperclass();
-        while (superClass != null) {
-            runAndDistributeMethods(superClass.getDeclaredMethods(), methods, implementedMethods);
-            superClass = superClass.getSuperclass();
-        }
+    private static void merge(Map<String, Method> methods, String key, Method m) {
+        methods.merge(key, m, (old, candidate) ->
+                old.getReturnType().isAssignableFrom(candidate.getReturnType()) ? candidate : old);
     }
 
     /**
-     * Validates list of not distributed methods and add every of it either in methods list, or in implemented
-     * methods list. If method is not abstract, there is no need to add implementation for it, so add it in implemented
-     * metods. Otherwise we have to implement declared method.
+     * Returns methods for the implementation, ordered by signatures. The collection is shared by all
+     * implementations of the token, so it is not copied
      *
-     * @param methodList         Array of unknown {@link Method}
-     * @param methods            list of methods to be implemented
-     * @param implementedMethods list of already implemented methods
-     */
-    private void runAndDistributeMethods(Method[] methodList, Set<Method> methods, Set<Method> implementedMethods) {
-        for (Method m : methodList) {
-            if (Modifier.isAbstract(m.getModifiers())) {
-                methods.add(m);
-            } else {
-                implementedMethods.add(m);
-            }
-        }
+     * @return {@link Collection} of methods to implement
+     */
+    private Collection<Method> getMethodsToImplement() {
+        return ABSTRACT_METHODS.get(token).values();
     }
 
     /**
-     * Generates set of methods to implement in all interfaces of the token
-     * And fills it in corresponding input sets
+     * Resolves methods to implement of all tokens in parallel, so generation only looks them up
      *
-     * @param methods {@link Set} of methods to implement.
+     * @param tokens type tokens
      */
-    private void appendInterfaces(Set<Method> methods) {
-        LinkedList<Class> interfaces = new LinkedList<>(Arrays.asList(token.getInterfaces()));
-        while (!interfaces.isEmpty()) {
-            Class superInterface = interfaces.poll();
-            interfaces.addAll(Arrays.asList(superInterface.getInterfaces()));
-            // interface doesn't contain any implemented method, so add them all
-            methods.addAll(Arrays.stream(superInterface.getDeclaredMethods())
-                    .filter(m -> Modifier.isAbstract(m.getModifiers()))
-                    .collect(Collectors.toList()));
-        }
+    private static void resolveMethods(List<Class<?>> tokens) {
+        tokens.parallelStream().forEach(ABSTRACT_METHODS::get);
     }
 
     /**
      * Appends first line of class - package of this class
+     *
+     * @throws IOException on output errors
      */
-    private void appendPackage() {
-        fileImpl.append("package ")
+    private void appendPackage() throws IOException {
+        line.append("package ")
                 .append(token.getPackage().getName())
                 .append(";\n");
+        writeLine();
     }
 
     /**
      * Appends implemented class declaration
+     *
+     * @throws IOException on output errors
      */
-    private void appendClassDeclaration() {
-        fileImpl.append("\npublic class ").append(token.getSimpleName()).append("Impl ")
+    private void appendClassDeclaration() throws IOException {
+        line.append("\npublic class ").append(token.getSimpleName()).append("Impl ")
                 .append(token.isInterface() ? "implements " : "extends ")
                 .append(token.getCanonicalName())
                 .append(" {\n\n");
+        writeLine();
     }
 
     /**
      * Appends implemented class constructor inplementations
+     *
+     * @throws IOException on output errors
      */
-    private void appendClassConstructors() {
+    private void appendClassConstructors() throws IOException {
         for (Constructor<?> constr : token.getDeclaredConstructors()) {
-            fileImpl.append("\t").append(getAccess(constr.getModifiers()))
+            line.append("\t").append(getAccess(constr.getModifiers()))
                     .append(" ").append(token.getSimpleName()).append("Impl");
 
             Class<?>[] parameterTypes = constr.getParameterTypes();
-            fileImpl.append("(")
-                    .append(String.join(", ", getInputParametersList(parameterTypes)))
-                    .append(")");
+            line.append("(");
+            appendParameters(parameterTypes);
+            line.append(")");
 
             Class<?>[] exceptions = constr.getExceptionTypes();
-            if (exceptions.length > 0) {
-                fileImpl.append(" throws ")
-                        .append(String.join(", ",
-                                Arrays.stream(exceptions)
-                                        .map(Class::getCanonicalName)
-                                        .collect(Collectors.toList())));
-
+            for (int i = 0; i < exceptions.length; i++) {
+                line.append(i == 0 ? " throws " : ", ").append(exceptions[i].getCanonicalName());
             }
 
-            fileImpl.append(" {\n\t\tsuper(")
-                    .append(String.join(", ",
-                            IntStream.range(0, parameterTypes.length)
-                                    .mapToObj(i -> " argument" + i)
-                                    .collect(Collectors.toList())))
-                    .append(");\n\t};\n\n");
+            line.append(" {\n\t\tsuper(");
+            for (int i = 0; i < parameterTypes.length; i++) {
+                line.append(i == 0 ? " argument" : ",  argument").append(i);
+            }
+            line.append(");\n\t};\n\n");
+            writeLine();
         }
-
     }
 
     /**
-     * Appemds methods implementations for implemented class
+     * Appends methods implementations for implemented class, writing every method as soon as it is built
      *
-     * @param methods {@link Set} of methods to implement
+     * @param methods {@link Collection} of methods to implement
+     * @throws IOException on output errors
      */
-    private void appendClassMethods(Set<Method> methods) {
+    private void appendClassMethods(Collection<Method> methods) throws IOException {
         for (Method method : methods) {
             if (!token.isInterface()) {
-                fileImpl.append("\t@Override\n");
+                line.append("\t@Override\n");
             }
-            Class<?>[] parameterTypes = method.getParameterTypes();
-            fileImpl.append("\t ").append(getAccess(method.getModifiers()))
+            line.append("\t ").append(getAccess(method.getModifiers()))
                     .append(" ")
                     .append(method.getReturnType().getCanonicalName()).append(" ")
-                    .append(method.getName()).append("(")
-                    .append(String.join(", ", getInputParametersList(parameterTypes)))
-                    .append(") {\n\t\treturn ")
+                    .append(method.getName()).append("(");
+            appendParameters(method.getParameterTypes());
+            line.append(") {\n\t\treturn ")
                     .append(primitives.getOrDefault(method.getReturnType().getCanonicalName(), "null"))
                     .append(";\n\t}\n\n");
+            writeLine();
         }
     }
 
     /**
      * Appends class finish lines
+     *
+     * @throws IOException on output errors
      */
-    private void appendClassEnding() {
-        fileImpl.append("}\n");
+    private void appendClassEnding() throws IOException {
+        line.append("}\n");
+        writeLine();
     }
 
     /**
      * Generates access modifier from modifiers of {@link Class} or {@link Method}
      *
      * @param modifiers modifiers of {@link Class} or {@link Method}
-     * @return {@link String} access modifier
+     * @return {@link String} access modifier, empty for package-private access
      */
     private String getAccess(int modifiers) {
-        return Modifier.toString(modifiers).split(" ")[0];
+        if (Modifier.isPublic(modifiers)) {
+            return "public";
+        } else if (Modifier.isProtected(modifiers)) {
+            return "protected";
+        } else if (Modifier.isPrivate(modifiers)) {
+            return "private";
+        }
+        return "";
     }
 
     /**
-     * Generates {@link List} of input parameters in pattern "argugment1, argument2"
+     * Appends input parameters in pattern "type0 argument0, type1 argument1"
      *
      * @param parameterTypes {@link Class}[] array of input parameter types
-     * @return {@link List} of arguments
      */
-    private List getInputParametersList(Class<?>[] parameterTypes) {
-        return IntStream.range(0, parameterTypes.length)
-                .mapToObj(i -> parameterTypes[i].getCanonicalName() + " argument" + i)
-                .collect(Collectors.toList());
+    private void appendParameters(Class<?>[] parameterTypes) {
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) {
+                line.append(", ");
+            }
+            line.append(parameterTypes[i].getCanonicalName()).append(" argument").append(i);
+        }
+    }
+
+    /**
+     * Writes the built part of the implementation to {@link #out} and clears the builder for the next one
+     *
+     * @throws IOException on output errors
+     */
+    private void writeLine() throws IOException {
+        int length = line.length();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, 2 * chars.length)];
+        }
+        line.getChars(0, length, chars, 0);
+        out.write(chars, 0, length);
+        line.setLength(0);
     }
 
     /**
@@ -275,24 +354,64 @@ public class Implementor implements JarImpler {
      *
      * @param token {@link Class} type token to create implementation for.
      * @param root  {@link Path} root directory.
-     * @throws ImplerException if it is impossible to generate realization for type token.
+     * @throws ImplerException if it is impossible to generate realization for type token or to write it.
      */
     @Override
     public void implement(Class<?> token, Path root) throws ImplerException {
-        init(token, root);
-        Set<Method> methods = getMethodsToImplement();
-
-        appendPackage();
-        appendClassDeclaration();
-        appendClassConstructors();
-        appendClassMethods(methods);
-        appendClassEnding();
-
-        try (FileWriter fWriter = new FileWriter(filePath.toString(), false);
-             BufferedWriter out = new BufferedWriter(fWriter)) {
-            out.write(fileImpl.toString());
+        String filename = token.getName().replace(".", "/");
+        filePath = Paths.get(root + "/" + filename + "Impl.java");
+        try {
+            Files.createDirectories(filePath.getParent());
         } catch (IOException e) {
-            System.err.println("Error while writing in output file, " + e.getMessage());
+            System.out.println("IOException " + e.getMessage());
+        }
+
+        // unlike Files.newBufferedWriter, replaces characters unmappable in the default charset instead of failing
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(filePath)))) {
+            generate(token, writer);
+        } catch (IOException e) {
+            throw new ImplerException("Error while writing in output file", e);
+        }
+    }
+
+    /**
+     * Generates class or interface realization into a string, for in-memory compilation
+     *
+     * @param token {@link Class} type token to create implementation for.
+     * @return {@link String} source of the realization
+     * @throws ImplerException if it is impossible to generate realization for type token.
+     */
+    private String generateSource(Class<?> token) throws ImplerException {
+        StringWriter writer = new StringWriter();
+        try {
+            generate(token, writer);
+        } catch (IOException e) {
+            throw new AssertionError("StringWriter does not throw", e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Generates class or interface realization, streaming it to the writer member by member,
+     * so memory used by generation does not depend on the number of methods
+     *
+     * @param token  {@link Class} type token to create implementation for.
+     * @param writer {@link Writer} to write realization to
+     * @throws ImplerException if it is impossible to generate realization for type token.
+     * @throws IOException     on output errors
+     */
+    private void generate(Class<?> token, Writer writer) throws ImplerException, IOException {
+        init(token);
+        out = writer;
+        try {
+            appendPackage();
+            appendClassDeclaration();
+            appendClassConstructors();
+            appendClassMethods(getMethodsToImplement());
+            appendClassEnding();
+        } finally {
+            out = null;
+            line.setLength(0);
         }
     }
 
@@ -325,7 +444,7 @@ public class Implementor implements JarImpler {
     }
 
     /**
-     * Generates jar file for generated .java file
+     * Generates jar file with the compiled implementation of the token
      *
      * @param token   type token to create implementation for.
      * @param jarFile target <tt>.jar</tt> file.
@@ -333,81 +452,367 @@ public class Implementor implements JarImpler {
      */
     @Override
     public void implementJar(Class<?> token, Path jarFile) throws ImplerException {
-        // get path of the generated java file
-        List<String> javaPathSplitted = Arrays.asList(jarFile.toString().split("\\."));
-        javaPathSplitted = javaPathSplitted.subList(0, javaPathSplitted.size() - 1);
-
-        String generatedClassesRootPath = String.join(File.separator, javaPathSplitted);
-        Path javaPath = Paths.get(generatedClassesRootPath + "Impl.java");
-        Path jarPath = Paths.get(String.join(File.separator, javaPathSplitted) + "Impl.class");
-
-        // compile file to class
-        ToolProvider.getSystemJavaCompiler().run(null, null, null, javaPath.toString());
+        implementJar(List.of(token), jarFile);
+    }
 
-        try (JarOutputStream jarOutputStream = new JarOutputStream(Files.newOutputStream(jarFile))) {
-            generateJar(jarOutputStream, jarPath);
+    /**
+     * Generates implementations of all tokens, compiles them in memory with a single compiler task
+     * and packs all compiled classes into one jar file. No temporary files are created.
+     * Methods to implement are resolved for all tokens in parallel before generation.
+     *
+     * @param tokens  type tokens to create implementations for.
+     * @param jarFile target <tt>.jar</tt> file.
+     * @throws ImplerException if some token cannot be implemented, on compilation errors and IO exceptions
+     */
+    public void implementJar(List<Class<?>> tokens, Path jarFile) throws ImplerException {
+        resolveMethods(tokens);
+        Map<String, ClassFile> classes;
+        if (bytecode) {
+            classes = new LinkedHashMap<>();
+            for (Class<?> token : tokens) {
+                ClassFile classFile = new ClassFile(token.getName() + "Impl");
+                classFile.bytes.writeBytes(generateClass(token));
+                classes.put(classFile.className, classFile);
+            }
+        } else {
+            List<JavaFileObject> sources = new ArrayList<>();
+            for (Class<?> token : tokens) {
+                sources.add(new SourceFile(token.getName() + "Impl", generateSource(token)));
+            }
+            classes = compile(tokens, sources);
+        }
+        try {
+            Path parent = jarFile.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+        } catch (IOException e) {
+            throw new ImplerException("Error while creating jar directory", e);
+        }
+        try (JarOutputStream jarOutputStream = new JarOutputStream(Files.newOutputStream(jarFile), createManifest())) {
+            for (ClassFile classFile : classes.values()) {
+                jarOutputStream.putNextEntry(new JarEntry(classFile.getEntryName()));
+                classFile.writeTo(jarOutputStream);
+            }
         } catch (IOException e) {
             throw new ImplerException("Error while writing in jar", e);
         }
     }
 
     /**
-     * Generates jar file in specified path from compiled files
+     * Returns loaded implementation of the token.
+     * Implementations are defined as hidden classes in the package of the token, so package-private classes
+     * and constructors of the token are accessible, and are cached per token, so repeated requests for the same
+     * token cost a lookup. Safe to call concurrently: only requests for the same token wait for each other.
+     *
+     * @param token type token to create implementation for.
+     * @return implementation {@link Class}
+     * @throws ImplerException if it is impossible to generate, compile or define realization for type token.
+     */
+    public Class<?> implementClass(Class<?> token) throws ImplerException {
+        return implementations.get(token).get();
+    }
+
+    /**
+     * Generates class file of the realization in the implementor's mode
      *
-     * @param jarOutputStream      {@link JarOutputStream} which contains creating jar
-     * @param pathToGeneratedClass path for JAR
-     * @throws IOException on IO issues
-     */
-    private void generateJar(JarOutputStream jarOutputStream, Path pathToGeneratedClass) throws IOException {
-        Iterator<Path> iter = pathToGeneratedClass.iterator();
-        String rootName = iter.next().getFileName().toString();
-        String relativePath = "";
-
-        while (iter.hasNext()) {
-            relativePath += iter.next().getFileName();
-            if (iter.hasNext()) {
-                relativePath += "/";
+     * @param token {@link Class} type token to create implementation for.
+     * @return class file bytes
+     * @throws ImplerException if it is impossible to generate or compile realization for type token.
+     */
+    private byte[] generateBytes(Class<?> token) throws ImplerException {
+        if (bytecode) {
+            return generateClass(token);
+        }
+        String className = token.getName() + "Impl";
+        return compile(List.of(token), List.of(new SourceFile(className, generateSource(token))))
+                .get(className).bytes.toByteArray();
+    }
+
+    /**
+     * Generates bytecode of the class realization, equivalent to the compiled generated source
+     *
+     * @param token {@link Class} type token to create implementation for.
+     * @return class file bytes
+     * @throws ImplerException if it is impossible to generate realization for type token.
+     */
+    private byte[] generateClass(Class<?> token) throws ImplerException {
+        init(token);
+        Collection<Method> methods = getMethodsToImplement();
+
+        String superName = token.isInterface() ? Object.class.getName() : token.getName();
+        ClassFileWriter writer = token.isInterface()
+                ? new ClassFileWriter(token.getName() + "Impl", superName, token.getName())
+                : new ClassFileWriter(token.getName() + "Impl", superName);
+        if (token.isInterface()) {
+            writer.addConstructor(Modifier.PUBLIC, superName, new Class<?>[0], new Class<?>[0]);
+        }
+        for (Constructor<?> constr : token.getDeclaredConstructors()) {
+            if (!Modifier.isPrivate(constr.getModifiers())) {
+                writer.addConstructor(constr.getModifiers() & (Modifier.PUBLIC | Modifier.PROTECTED),
+                        superName, constr.getParameterTypes(), constr.getExceptionTypes());
             }
+        }
+        for (Method method : methods) {
+            writer.addDefaultMethod(method.getModifiers() & (Modifier.PUBLIC | Modifier.PROTECTED),
+                    method.getName(), method.getParameterTypes(), method.getReturnType());
+        }
+        appendBridges(writer, methods);
+        return writer.toByteArray();
+    }
 
-            addJarEntryToJarStream(relativePath, pathToGeneratedClass, jarOutputStream);
-
-            if (!iter.hasNext()) {
-                try (InputStream in = newInputStream(pathToGeneratedClass)) {
-                    byte[] bytes = new byte[4096];
-                    int count = in.read(bytes);
-                    while (count != -1) {
-                        jarOutputStream.write(bytes, 0, count);
-                        count = in.read(bytes);
-                    }
-                } catch (IOException e) {
-                    throw e;
+    /**
+     * Adds bridges for abstract methods overridden by implemented methods with covariant return types,
+     * as the compiler does: bridges of supertypes are not reused, as they call the overriding method anyway
+     *
+     * @param writer  {@link ClassFileWriter} of the realization
+     * @param methods {@link Collection} of implemented methods
+     * @throws ImplerException if return types of methods with the same signature are incompatible
+     */
+    private void appendBridges(ClassFileWriter writer, Collection<Method> methods) throws ImplerException {
+        List<Method> abstractMethods = new ArrayList<>();
+        Set<String> bridged = new HashSet<>();
+        LinkedList<Class<?>> interfaces = new LinkedList<>();
+        for (Class<?> c = token; c != null; c = c.getSuperclass()) {
+            interfaces.addAll(Arrays.asList(c.getInterfaces()));
+            for (Method m : c.getDeclaredMethods()) {
+                if (Modifier.isAbstract(m.getModifiers())) {
+                    abstractMethods.add(m);
+                } else if (!m.isBridge()) {
+                    bridged.add(m.getName() + ClassFileWriter.methodDescriptor(m.getParameterTypes(), m.getReturnType()));
                 }
             }
         }
+        while (!interfaces.isEmpty()) {
+            Class<?> superInterface = interfaces.poll();
+            interfaces.addAll(Arrays.asList(superInterface.getInterfaces()));
+            Arrays.stream(superInterface.getDeclaredMethods())
+                    .filter(m -> Modifier.isAbstract(m.getModifiers()))
+                    .forEach(abstractMethods::add);
+        }
 
-        jarOutputStream.close();
+        for (Method method : methods) {
+            bridged.add(method.getName() + ClassFileWriter.methodDescriptor(method.getParameterTypes(), method.getReturnType()));
+        }
+        for (Method method : methods) {
+            for (Method overridden : abstractMethods) {
+                if (!overridden.getName().equals(method.getName())
+                        || !Arrays.equals(overridden.getParameterTypes(), method.getParameterTypes())) {
+                    continue;
+                }
+                String key = overridden.getName()
+                        + ClassFileWriter.methodDescriptor(overridden.getParameterTypes(), overridden.getReturnType());
+                if (!bridged.add(key)) {
+                    continue;
+                }
+                if (!overridden.getReturnType().isAssignableFrom(method.getReturnType())) {
+                    throw new ImplerException("Incompatible return types of " + method.getName());
+                }
+                writer.addBridge(method.getName(), method.getParameterTypes(),
+                        overridden.getReturnType(), method.getReturnType());
+            }
+        }
     }
 
     /**
-     * Adds jar entry to current jarOutputStream
+     * Compiles sources in memory with a single compiler task
      *
-     * @param entryPath       path of entry to be added
-     * @param path            JAR path
-     * @param jarOutputStream {@link JarOutputStream} used output stream
-     * @throws IOException on IO exceptions
+     * @param tokens  type tokens the sources implement, their locations are added to the class path
+     * @param sources {@link List} of sources
+     * @return {@link Map} of compiled classes by binary names, in order of generation
+     * @throws ImplerException if compiler is not available or compilation fails
      */
-    private void addJarEntryToJarStream(String entryPath, Path path, JarOutputStream jarOutputStream) throws IOException {
-        JarEntry jarEntry = new JarEntry(entryPath);
-        jarEntry.setLastModifiedTime(getLastModifiedTime(path));
-        jarOutputStream.putNextEntry(jarEntry);
+    private Map<String, ClassFile> compile(List<Class<?>> tokens, List<JavaFileObject> sources) throws ImplerException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new ImplerException("Java compiler is not available");
+        }
+        List<String> options = List.of("-cp", getClassPath(tokens));
+        try (MemoryFileManager fileManager = new MemoryFileManager(compiler.getStandardFileManager(null, null, null))) {
+            if (!compiler.getTask(null, fileManager, null, options, null, sources).call()) {
+                throw new ImplerException("Compilation failed");
+            }
+            return fileManager.classes;
+        } catch (IOException e) {
+            throw new ImplerException("Error while compiling", e);
+        }
+    }
+
+    /**
+     * Generates class path for compilation: locations of the tokens followed by the current class path
+     *
+     * @param tokens type tokens
+     * @return class path {@link String}
+     * @throws ImplerException if token location cannot be converted to path
+     */
+    private static String getClassPath(List<Class<?>> tokens) throws ImplerException {
+        Set<String> entries = new LinkedHashSet<>();
+        for (Class<?> token : tokens) {
+            CodeSource source = token.getProtectionDomain().getCodeSource();
+            if (source != null && source.getLocation() != null) {
+                try {
+                    entries.add(Paths.get(source.getLocation().toURI()).toString());
+                } catch (URISyntaxException e) {
+                    throw new ImplerException("Invalid token location", e);
+                }
+            }
+        }
+        entries.add(System.getProperty("java.class.path"));
+        return String.join(File.pathSeparator, entries);
+    }
+
+    /**
+     * Generates manifest of the jar
+     *
+     * @return {@link Manifest}
+     */
+    private static Manifest createManifest() {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        return manifest;
+    }
+
+    /**
+     * Lazily defined implementation of a single token.
+     * Every definition uses a fresh {@link Implementor}, so generation state is never shared between tokens.
+     */
+    private static class Implementation {
+        private final Class<?> token;
+        private final boolean bytecode;
+        private Class<?> implementation;
+
+        private Implementation(Class<?> token, boolean bytecode) {
+            this.token = token;
+            this.bytecode = bytecode;
+        }
+
+        /**
+         * Returns implementation of the token, defining it on the first call.
+         *
+         * @return implementation {@link Class}
+         * @throws ImplerException if it is impossible to generate, compile or define realization for type token.
+         */
+        private synchronized Class<?> get() throws ImplerException {
+            if (implementation == null) {
+                implementation = define(token, new Implementor(bytecode).generateBytes(token));
+            }
+            return implementation;
+        }
+
+        /**
+         * Defines hidden class in the package of the token.
+         *
+         * @param token      type token being implemented.
+         * @param classBytes class file of the implementation.
+         * @return defined class
+         * @throws ImplerException if the class cannot be defined.
+         */
+        private static Class<?> define(Class<?> token, byte[] classBytes) throws ImplerException {
+            try {
+                return MethodHandles.privateLookupIn(token, MethodHandles.lookup())
+                        .defineHiddenClass(classBytes, true)
+                        .lookupClass();
+            } catch (IllegalAccessException | LinkageError e) {
+                throw new ImplerException("Cannot define implementation of " + token.getName(), e);
+            }
+        }
     }
 
     /**
-     * Default comparator
+     * Source held in memory
      */
-    private static Comparator<Method> DEFAULT_METHOD_COMPARATOR = Comparator
-            .comparing(m -> m.getName() + Arrays.stream(m.getParameterTypes())
-                    .map(Class::getSimpleName)
-                    .collect(Collectors.joining("")));
+    private static class SourceFile extends SimpleJavaFileObject {
+        /**
+         * Source code
+         */
+        private final String source;
+
+        /**
+         * Creates source of the class
+         *
+         * @param className binary name of the class
+         * @param source    source code
+         */
+        private SourceFile(String className, String source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    /**
+     * Class file captured in memory
+     */
+    private static class ClassFile extends SimpleJavaFileObject {
+        /**
+         * Binary name of the class
+         */
+        private final String className;
+
+        /**
+         * Bytecode written by the compiler
+         */
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        /**
+         * Creates empty class file
+         *
+         * @param className binary name of the class
+         */
+        private ClassFile(String className) {
+            super(URI.create("bytes:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            this.className = className;
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            bytes.reset();
+            return bytes;
+        }
+
+        /**
+         * @return name of the jar entry of the class
+         */
+        private String getEntryName() {
+            return className.replace('.', '/') + Kind.CLASS.extension;
+        }
+
+        /**
+         * Writes bytecode to the stream
+         *
+         * @param out {@link OutputStream} to write to
+         * @throws IOException on IO exceptions
+         */
+        private void writeTo(OutputStream out) throws IOException {
+            bytes.writeTo(out);
+        }
+    }
+
+    /**
+     * File manager keeping compiled classes in memory
+     */
+    private static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        /**
+         * Compiled classes by binary names
+         */
+        private final Map<String, ClassFile> classes = new LinkedHashMap<>();
+
+        /**
+         * Creates file manager delegating everything except class output
+         *
+         * @param fileManager {@link StandardJavaFileManager} delegate
+         */
+        private MemoryFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className,
+                                                   JavaFileObject.Kind kind, FileObject sibling) {
+            return classes.computeIfAbsent(className, ClassFile::new);
+        }
+    }
 
 }
\ No newline at end of file
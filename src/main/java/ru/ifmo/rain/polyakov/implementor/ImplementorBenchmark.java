@@ -0,0 +1,211 @@
+package ru.ifmo.rain.polyakov.implementor;
+
+import info.kgeorgiy.java.advanced.implementor.ImplerException;
+import info.kgeorgiy.java.advanced.implementor.Tester;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark of {@link Implementor} jar generation on the classes of the tester jar:
+ * compiles every class with its own compiler task, then all classes with a single task,
+ * and then generates bytecode directly.
+ * Classes of the bytecode jar are loaded and checked to declare the same members as the compiled ones.
+ */
+public class ImplementorBenchmark {
+    private static final String TESTS_PACKAGE = "info/kgeorgiy/java/advanced/implementor/";
+
+    public static void main(String[] args) {
+        String packages = args.length > 0 ? args[0] : "full";
+        List<Class<?>> tokens;
+        Path directory;
+        try {
+            tokens = loadTokens(packages);
+            directory = Files.createTempDirectory("implementor-benchmark");
+        } catch (IOException | URISyntaxException e) {
+            System.err.println("Error while loading test classes: " + e.getMessage());
+            return;
+        }
+        System.out.println(tokens.size() + " implementable classes in " + packages);
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < tokens.size(); i++) {
+                new Implementor().implementJar(tokens.get(i), directory.resolve("single" + i + ".jar"));
+            }
+            report("task per class", start);
+
+            start = System.nanoTime();
+            new Implementor().implementJar(tokens, directory.resolve("batch.jar"));
+            report("single task", start);
+
+            start = System.nanoTime();
+            new Implementor(true).implementJar(tokens, directory.resolve("bytecode.jar"));
+            report("bytecode", start);
+
+            verify(tokens, directory.resolve("batch.jar"), directory.resolve("bytecode.jar"));
+        } catch (ImplerException e) {
+            System.err.println("Error while implementing: " + e.getMessage());
+        } catch (IOException | ReflectiveOperationException | LinkageError e) {
+            System.err.println("Error while verifying: " + e);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            } catch (IOException e) {
+                System.err.println("Error while deleting temporary directory, " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Loads top-level classes of the tester package which {@link Implementor} can implement
+     *
+     * @param packages subpackage of the tester package, for example <tt>full</tt> or <tt>basic</tt>
+     * @return {@link List} of tokens
+     * @throws IOException        if the tester jar cannot be read
+     * @throws URISyntaxException if the tester jar location is invalid
+     */
+    static List<Class<?>> loadTokens(String packages) throws IOException, URISyntaxException {
+        Path jar = Paths.get(Tester.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        List<String> names;
+        try (JarFile jarFile = new JarFile(jar.toFile())) {
+            names = jarFile.stream()
+                    .map(JarEntry::getName)
+                    .filter(name -> name.startsWith(TESTS_PACKAGE + packages + "/"))
+                    .filter(name -> name.endsWith(".class") && !name.contains("$"))
+                    .map(name -> name.substring(0, name.length() - ".class".length()).replace('/', '.'))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        Path probe = Files.createTempDirectory("implementor-probe");
+        List<Class<?>> tokens = new ArrayList<>();
+        try {
+            for (String name : names) {
+                try {
+                    Class<?> token = Class.forName(name);
+                    new Implementor().implement(token, probe);
+                    tokens.add(token);
+                } catch (ClassNotFoundException | ImplerException ignored) {
+                }
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(probe)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Loads every implementation from both jars and compares their declared constructors and methods.
+     * Implementations are loaded together with the tester classes, so package-private classes
+     * and constructors are accessible from them.
+     *
+     * @param tokens   implemented tokens
+     * @param expected jar compiled from sources
+     * @param actual   jar with generated bytecode
+     * @throws IOException                  if class loaders cannot be closed
+     * @throws ReflectiveOperationException if some class cannot be loaded
+     */
+    private static void verify(List<Class<?>> tokens, Path expected, Path actual)
+            throws IOException, ReflectiveOperationException {
+        Path tester;
+        try {
+            tester = Paths.get(Tester.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+        int mismatches = 0;
+        try (JarLoader expectedLoader = new JarLoader(expected, tester);
+             JarLoader actualLoader = new JarLoader(actual, tester)) {
+            for (Class<?> token : tokens) {
+                String name = token.getName() + "Impl";
+                Class<?> actualClass = Class.forName(name, true, actualLoader);
+                Class<?> actualToken = Class.forName(token.getName(), false, actualLoader);
+                if (!actualToken.isAssignableFrom(actualClass) || Modifier.isAbstract(actualClass.getModifiers())) {
+                    System.out.println("Not a realization: " + name);
+                    mismatches++;
+                    continue;
+                }
+                Set<String> expectedMembers = members(Class.forName(name, true, expectedLoader));
+                Set<String> actualMembers = members(actualClass);
+                if (!expectedMembers.equals(actualMembers)) {
+                    System.out.println("Members differ: " + name + "\n\tcompiled: " + expectedMembers
+                            + "\n\tgenerated: " + actualMembers);
+                    mismatches++;
+                }
+            }
+        }
+        System.out.printf("verified %d classes, %d mismatches%n", tokens.size(), mismatches);
+    }
+
+    private static Set<String> members(Class<?> implementation) {
+        Set<String> members = new TreeSet<>();
+        for (Constructor<?> constructor : implementation.getDeclaredConstructors()) {
+            members.add(constructor.toString().replace(implementation.getName(), "Impl"));
+        }
+        for (Method method : implementation.getDeclaredMethods()) {
+            members.add(method.toString().replace(implementation.getName(), "Impl")
+                    + (method.isBridge() ? " bridge" : ""));
+        }
+        return members;
+    }
+
+    private static void report(String name, long start) {
+        System.out.printf("%s: %d ms%n", name, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Class loader defining all classes of the given jars itself, ignoring signatures of the jars
+     */
+    private static class JarLoader extends ClassLoader implements Closeable {
+        private final List<JarFile> jars = new ArrayList<>();
+
+        private JarLoader(Path... jars) throws IOException {
+            super(ClassLoader.getPlatformClassLoader());
+            for (Path jar : jars) {
+                this.jars.add(new JarFile(jar.toFile(), false));
+            }
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            String entryName = name.replace('.', '/') + ".class";
+            for (JarFile jar : jars) {
+                JarEntry entry = jar.getJarEntry(entryName);
+                if (null != entry) {
+                    try (InputStream in = jar.getInputStream(entry)) {
+                        byte[] bytes = in.readAllBytes();
+                        return defineClass(name, bytes, 0, bytes.length);
+                    } catch (IOException e) {
+                        throw new ClassNotFoundException(name, e);
+                    }
+                }
+            }
+            throw new ClassNotFoundException(name);
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (JarFile jar : jars) {
+                jar.close();
+            }
+        }
+    }
+}
@@ -56,7 +56,7 @@ public class RecursiveWalk {
         }
     }
 
-    private int calculateChecksum(Path path) {
+    static int calculateChecksum(Path path) {
         try (FileInputStream is = new FileInputStream(path.toFile())) {
             byte[] chunk = new byte[CHUNK_];
             int chunkLen;